@@ -0,0 +1,52 @@
+import java.util.Random;
+
+/**
+ * The fixed set of positions the benchmarks run on. The positions come from random games played
+ * with a fixed seed, spread evenly from the opening to the endgame, so every run measures exactly
+ * the same positions.
+ */
+public class Corpus {
+  static final int SIZE = 64;
+  static final long SEED = 20180917L;
+
+  final Game games[] = new Game[SIZE];
+  final int colors[] = new int[SIZE];
+
+  /** Creates the corpus */
+  public Corpus() {
+    Random random = new Random(SEED);
+    int list[] = new int[Board.SQUARES];
+
+    for (int k = 0; k < SIZE; k++) {
+      // Play up to a number of plies that cycles through the whole game
+      int plies = 1 + (k * 7) % 56;
+      Board position = Board.start();
+      int color = Game.BLACK;
+
+      for (int ply = 0; ply < plies; ply++) {
+        int count = Board.moveList(position.legalMoves(color), list);
+        if (count == 0) {
+          color = other(color);
+          count = Board.moveList(position.legalMoves(color), list);
+          if (count == 0) {
+            break;
+          }
+        }
+        position.play(color, list[random.nextInt(count)]);
+        color = other(color);
+      }
+
+      // Make sure the player to move can move if anyone can
+      if (position.legalMoves(color) == 0) {
+        color = other(color);
+      }
+
+      games[k] = new Game(position);
+      colors[k] = color;
+    }
+  }
+
+  static int other(int color) {
+    return color == Game.BLACK ? Game.WHITE : Game.BLACK;
+  }
+}
@@ -0,0 +1,205 @@
+import bench.Workload;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The engine work measured by the benchmarks in the bench package, one static method per workload.
+ * Workloads that change the game work on a copy of the corpus position.
+ */
+public class Workloads {
+  static final Corpus corpus = new Corpus();
+  static final White white = new White();
+
+  // Table of the searches on the midgame positions
+  static final int TABLE_MB = 16;
+
+  /** Game.legalMove probed on all 64 squares, the way the players used to find their moves */
+  public static Workload legalMove(int depth) {
+    return index -> {
+      Game game = corpus.games[index];
+      int color = corpus.colors[index];
+      long count = 0;
+      for (int i = 1; i < Game.HEIGHT - 1; i++) {
+        for (int j = 1; j < Game.WIDTH - 1; j++) {
+          if (game.legalMove(i, j, color, false)) {
+            count++;
+          }
+        }
+      }
+      return count;
+    };
+  }
+
+  /** Game.pointMove probed on all 64 squares, the way buildTree generates children */
+  public static Workload pointMove(int depth) {
+    return index -> {
+      Game game = corpus.games[index];
+      int color = corpus.colors[index];
+      long points = 0;
+      for (int i = 1; i < Game.HEIGHT - 1; i++) {
+        for (int j = 1; j < Game.WIDTH - 1; j++) {
+          points += game.pointMove(i, j, color, false, White.pointTable).points;
+        }
+      }
+      return points;
+    };
+  }
+
+  /** Game.legalMoves, the whole board in one bitboard pass */
+  public static Workload legalMoves(int depth) {
+    return index -> corpus.games[index].legalMoves(corpus.colors[index]);
+  }
+
+  /** Board.moves on a position that is already a bitboard */
+  public static Workload bitboardMoves(int depth) {
+    Board positions[] = new Board[Corpus.SIZE];
+    for (int k = 0; k < Corpus.SIZE; k++) {
+      positions[k] = corpus.games[k].toBoard();
+    }
+    return index -> positions[index].legalMoves(corpus.colors[index]);
+  }
+
+  /** The Game(Game) copy constructor */
+  public static Workload copy(int depth) {
+    return index -> new Game(corpus.games[index]).board[4][4];
+  }
+
+  /** White.mobilityCheck */
+  public static Workload mobilityCheck(int depth) {
+    return index -> white.mobilityCheck(corpus.games[index], corpus.colors[index]);
+  }
+
+  /** White.endCheck */
+  public static Workload endCheck(int depth) {
+    return index -> white.endCheck(corpus.games[index]);
+  }
+
+  /** White.searchStrategy, building a tree of Nodes */
+  public static Workload searchStrategy(int depth) {
+    return index -> {
+      Game game = new Game(corpus.games[index]);
+      int color = corpus.colors[index];
+      return white.searchStrategy(game, !game.canMove(color), color, depth).board[4][4];
+    };
+  }
+
+  /** White.depthFirst, the same search without the tree */
+  public static Workload depthFirst(int depth) {
+    return index -> {
+      Game game = new Game(corpus.games[index]);
+      return white.depthFirst(game, corpus.colors[index], depth).x;
+    };
+  }
+
+  /**
+   * The alpha-beta search White plays with. It runs without a transposition table, which would
+   * otherwise remember the corpus between calls.
+   */
+  public static Workload alphaBeta(int depth) {
+    Search search = new Search(White.defaultEvaluator(), White.ENDWEIGHT, null);
+    search.order = new MoveOrder(White.pointTable);
+    return index -> search.bestMove(corpus.games[index].toBoard(), corpus.colors[index], depth);
+  }
+
+  /** @return the midgame positions of ParallelSearch, Black to move */
+  static Board[] midgamePositions() {
+    Board positions[] = new Board[ParallelSearch.POSITIONS];
+    for (int p = 0; p < positions.length; p++) {
+      positions[p] = ParallelSearch.midgame(p);
+    }
+    return positions;
+  }
+
+  /**
+   * Iterates a search to a depth on one of the midgame positions of ParallelSearch, from an empty
+   * table
+   *
+   * @return a workload whose index picks the position and whose result is the nodes searched
+   */
+  static Workload midgame(Search search, int depth) {
+    Board positions[] = midgamePositions();
+    return index -> {
+      search.table.clear();
+      search.iterate(positions[index], Game.BLACK, depth, Long.MAX_VALUE, Long.MAX_VALUE);
+      return search.nodes;
+    };
+  }
+
+  /** The alpha-beta search on the midgame positions, trying moves in board order */
+  public static Workload unordered(int depth) {
+    Search search =
+        new Search(White.defaultEvaluator(), White.ENDWEIGHT, new TranspositionTable(TABLE_MB));
+    return midgame(search, depth);
+  }
+
+  /** The same search with MoveOrder */
+  public static Workload ordered(int depth) {
+    Search search =
+        new Search(White.defaultEvaluator(), White.ENDWEIGHT, new TranspositionTable(TABLE_MB));
+    search.order = new MoveOrder(White.pointTable);
+    return midgame(search, depth);
+  }
+
+  /** The same search with principal variation search and aspiration windows, as White plays */
+  public static Workload principalVariation(int depth) {
+    Search search = White.newSearch(White.defaultEvaluator(), new TranspositionTable(TABLE_MB));
+    return midgame(search, depth);
+  }
+
+  /**
+   * The search White plays with, pruned by Multi-ProbCut at a selectivity level, on the midgame
+   * positions. It needs the calibration of the evaluator, made by java Othello probcut.
+   */
+  public static Workload probCut(int depth, int selectivity) {
+    Search search = White.newSearch(White.defaultEvaluator(), new TranspositionTable(TABLE_MB));
+    try {
+      search.probCut = new ProbCut(Paths.get(Othello.PROBCUT_FILE));
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "Could not read " + Othello.PROBCUT_FILE + ", make it with java Othello probcut", e);
+    }
+    search.selectivity = selectivity;
+    return midgame(search, depth);
+  }
+
+  /**
+   * The search White plays with split over threads that share its table (Lazy SMP), iterated to a
+   * depth on the midgame positions from an empty table. The time per search is the time to reach
+   * the depth, which is what more threads should bring down.
+   */
+  public static Workload parallel(int depth, int threads) {
+    Search first = White.newSearch(White.defaultEvaluator(), new TranspositionTable(TABLE_MB));
+    ParallelSearch search = new ParallelSearch(first, threads);
+    Board positions[] = midgamePositions();
+    return new Workload() {
+      @Override
+      public long run(int index) {
+        first.table.clear();
+        search.iterate(positions[index], Game.BLACK, depth, Long.MAX_VALUE, Long.MAX_VALUE);
+        return search.nodes;
+      }
+
+      @Override
+      public void close() {
+        search.shutdown();
+      }
+    };
+  }
+
+  /** A full game between two random players, the index seeds the game */
+  public static Workload playout(int depth) {
+    Black black = new Black();
+    Game game = new Game();
+    return index -> {
+      black.random = new Random(index);
+      game.setBoard(Board.start());
+      int color = Game.BLACK;
+      while (!game.gameOver()) {
+        black.strategy(game, !game.canMove(color), color);
+        color = Corpus.other(color);
+      }
+      return game.toBoard().black;
+    };
+  }
+}
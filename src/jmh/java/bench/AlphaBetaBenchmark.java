@@ -0,0 +1,34 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** The alpha-beta search White plays with, at the depths it reaches in play. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AlphaBetaBenchmark {
+  @Param({"4", "6", "8"})
+  int depth;
+
+  Workload alphaBeta;
+
+  int index = 0;
+
+  @Setup
+  public void setup() {
+    alphaBeta = Workload.of("alphaBeta", depth);
+  }
+
+  @Benchmark
+  public long alphaBeta() {
+    return alphaBeta.run(index++ & EngineBenchmark.CORPUS_MASK);
+  }
+}
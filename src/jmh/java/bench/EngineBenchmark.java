@@ -0,0 +1,90 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Move generation, flipping and the checks White runs on every node, each measured per position
+ * while cycling through the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineBenchmark {
+  // Must match Corpus.SIZE
+  static final int CORPUS_MASK = 63;
+
+  Workload legalMove;
+  Workload pointMove;
+  Workload legalMoves;
+  Workload bitboardMoves;
+  Workload copy;
+  Workload mobilityCheck;
+  Workload endCheck;
+  Workload playout;
+
+  int index = 0;
+
+  @Setup
+  public void setup() {
+    legalMove = Workload.of("legalMove", 0);
+    pointMove = Workload.of("pointMove", 0);
+    legalMoves = Workload.of("legalMoves", 0);
+    bitboardMoves = Workload.of("bitboardMoves", 0);
+    copy = Workload.of("copy", 0);
+    mobilityCheck = Workload.of("mobilityCheck", 0);
+    endCheck = Workload.of("endCheck", 0);
+    playout = Workload.of("playout", 0);
+  }
+
+  int next() {
+    return index++ & CORPUS_MASK;
+  }
+
+  @Benchmark
+  public long legalMove() {
+    return legalMove.run(next());
+  }
+
+  @Benchmark
+  public long pointMove() {
+    return pointMove.run(next());
+  }
+
+  @Benchmark
+  public long legalMoves() {
+    return legalMoves.run(next());
+  }
+
+  @Benchmark
+  public long bitboardMoves() {
+    return bitboardMoves.run(next());
+  }
+
+  @Benchmark
+  public long copy() {
+    return copy.run(next());
+  }
+
+  @Benchmark
+  public long mobilityCheck() {
+    return mobilityCheck.run(next());
+  }
+
+  @Benchmark
+  public long endCheck() {
+    return endCheck.run(next());
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public long playout() {
+    return playout.run(next());
+  }
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The alpha-beta search iterated to a fixed depth on the midgame positions, without and with move
+ * ordering, each search starting from an empty table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MoveOrderBenchmark {
+  // Must match ParallelSearch.POSITIONS
+  static final int POSITIONS_MASK = 3;
+
+  @Param({"6", "8"})
+  int depth;
+
+  Workload unordered;
+  Workload ordered;
+
+  int index = 0;
+
+  @Setup
+  public void setup() {
+    unordered = Workload.of("unordered", depth);
+    ordered = Workload.of("ordered", depth);
+  }
+
+  @Benchmark
+  public long unordered(Nodes counter) {
+    return counter.add(unordered.run(index++ & POSITIONS_MASK));
+  }
+
+  @Benchmark
+  public long ordered(Nodes counter) {
+    return counter.add(ordered.run(index++ & POSITIONS_MASK));
+  }
+}
@@ -0,0 +1,27 @@
+package bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the nodes a search benchmark visits, reported by JMH next to the time. Searches that
+ * prune more visit fewer nodes, which the time alone does not show when they also cost more per
+ * node.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class Nodes {
+  public long nodes;
+
+  /**
+   * Adds the nodes of one search
+   *
+   * @param searched the nodes the search visited
+   * @return searched, to be returned by the benchmark
+   */
+  public long add(long searched) {
+    nodes += searched;
+    return searched;
+  }
+}
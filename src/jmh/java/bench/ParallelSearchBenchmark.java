@@ -0,0 +1,47 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The time ParallelSearch takes to reach a fixed depth on the midgame positions with 1, 2, 4 and 8
+ * threads, each search starting from an empty table. Thread counts above the processors of the
+ * machine only show the cost of sharing them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelSearchBenchmark {
+  @Param({"10"})
+  int depth;
+
+  @Param({"1", "2", "4", "8"})
+  int threads;
+
+  Workload parallel;
+
+  int index = 0;
+
+  @Setup
+  public void setup() {
+    parallel = Workload.of("parallel", depth, threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    parallel.close();
+  }
+
+  @Benchmark
+  public long parallel(Nodes counter) {
+    return counter.add(parallel.run(index++ & MoveOrderBenchmark.POSITIONS_MASK));
+  }
+}
@@ -0,0 +1,45 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The ordered alpha-beta search iterated to a fixed depth on the midgame positions, with a full
+ * window at every node and with principal variation search and aspiration windows, each search
+ * starting from an empty table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrincipalVariationBenchmark {
+  @Param({"8", "10"})
+  int depth;
+
+  Workload alphaBeta;
+  Workload principalVariation;
+
+  int index = 0;
+
+  @Setup
+  public void setup() {
+    alphaBeta = Workload.of("ordered", depth);
+    principalVariation = Workload.of("principalVariation", depth);
+  }
+
+  @Benchmark
+  public long alphaBeta(Nodes counter) {
+    return counter.add(alphaBeta.run(index++ & MoveOrderBenchmark.POSITIONS_MASK));
+  }
+
+  @Benchmark
+  public long principalVariation(Nodes counter) {
+    return counter.add(principalVariation.run(index++ & MoveOrderBenchmark.POSITIONS_MASK));
+  }
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * What each selectivity level saves: the search iterated to a fixed depth on the midgame positions
+ * at every level, from 0 (full width) to 4, each search starting from an empty table. Needs the
+ * calibration file in the working directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProbCutBenchmark {
+  @Param({"10"})
+  int depth;
+
+  @Param({"0", "1", "2", "3", "4"})
+  int selectivity;
+
+  Workload probCut;
+
+  int index = 0;
+
+  @Setup
+  public void setup() {
+    probCut = Workload.of("probCut", depth, selectivity);
+  }
+
+  @Benchmark
+  public long probCut(Nodes counter) {
+    return counter.add(probCut.run(index++ & MoveOrderBenchmark.POSITIONS_MASK));
+  }
+}
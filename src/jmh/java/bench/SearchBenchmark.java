@@ -0,0 +1,41 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** White's tree based searches at several depths, per position of the corpus. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+  @Param({"1", "2", "3"})
+  int depth;
+
+  Workload searchStrategy;
+  Workload depthFirst;
+
+  int index = 0;
+
+  @Setup
+  public void setup() {
+    searchStrategy = Workload.of("searchStrategy", depth);
+    depthFirst = Workload.of("depthFirst", depth);
+  }
+
+  @Benchmark
+  public long searchStrategy() {
+    return searchStrategy.run(index++ & EngineBenchmark.CORPUS_MASK);
+  }
+
+  @Benchmark
+  public long depthFirst() {
+    return depthFirst.run(index++ & EngineBenchmark.CORPUS_MASK);
+  }
+}
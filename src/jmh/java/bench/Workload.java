@@ -0,0 +1,61 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * One piece of engine work to be timed. The engine lives in the default package, which Java code
+ * in a named package cannot refer to, and JMH will not generate benchmarks in the default package.
+ * So the work itself is written in the default package (see Workloads) and handed to the
+ * benchmarks through this interface.
+ */
+public interface Workload {
+
+  /**
+   * Does the work once on one position of the corpus
+   *
+   * @param index which position of the corpus to use
+   * @return a value derived from the work, to be consumed so the work is not optimized away
+   */
+  long run(int index);
+
+  /** Releases the threads the workload started, if any */
+  default void close() {}
+
+  /**
+   * Looks up a workload
+   *
+   * @param name the name of a Workloads method
+   * @param depth the search depth, ignored by workloads that do not search
+   * @return the workload
+   */
+  static Workload of(String name, int depth) {
+    try {
+      return (Workload) Class.forName("Workloads").getMethod(name, int.class).invoke(null, depth);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("No workload named " + name, e);
+    }
+  }
+
+  /**
+   * Looks up a workload that takes a setting besides the depth
+   *
+   * @param name the name of a Workloads method
+   * @param depth the search depth
+   * @param setting the second argument of the method, such as a thread count
+   * @return the workload
+   */
+  static Workload of(String name, int depth, int setting) {
+    try {
+      return (Workload)
+          Class.forName("Workloads")
+              .getMethod(name, int.class, int.class)
+              .invoke(null, depth, setting);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("No workload named " + name, e);
+    }
+  }
+}
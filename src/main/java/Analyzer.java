@@ -0,0 +1,353 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores every move of the games in a GameArchive with a deeper search than they were played with,
+ * to find the moves that lost the most.
+ *
+ * <p>The games are replayed one after the other and each position is put on a bounded queue, from
+ * which a pool of workers, each with its own search and table, takes them. A position is scored
+ * twice: the best move at the analysis depth, and the move played one move less deep from the
+ * position after it, so the loss of the move is the difference. Only the games still being
+ * analyzed are in memory, however large the archive.
+ *
+ * <p>Each game is written to the output in one block as soon as its last position is scored, a
+ * line per move and then a line starting with "=", and the output is flushed after every game. A
+ * run that is stopped keeps the games it finished: the next run on the same output drops any block
+ * cut short and skips the games already there.
+ */
+public class Analyzer {
+  // Positions waiting on the queue for each worker
+  static final int QUEUE_PER_THREAD = 64;
+
+  // Size of each worker's transposition table in megabytes
+  static final int TABLE_MB = 16;
+
+  static final String HEADER = "# game turn color played best bestScore playedScore loss";
+
+  final GameArchive archive;
+  final Evaluator evaluator;
+  final int endWeight;
+  final int depth;
+  final int threads;
+
+  // Put on the queue once per worker after the last position
+  final Position stop = new Position(null, 0, null, 0, 0);
+
+  final LongAdder positions = new LongAdder();
+  final LongAdder totalLoss = new LongAdder();
+  int games = 0;
+
+  // The largest loss found and where, guarded by this
+  int worstLoss = 0;
+  int worstGame = -1;
+  int worstTurn = -1;
+
+  /**
+   * Creates an analyzer
+   *
+   * @param archive the games to analyze
+   * @param evaluator scores positions at the search horizon
+   * @param endWeight the score of each disc of difference in a finished game
+   * @param depth the depth the best move of each position is searched to
+   * @param threads the number of workers
+   */
+  public Analyzer(GameArchive archive, Evaluator evaluator, int endWeight, int depth, int threads) {
+    this.archive = archive;
+    this.evaluator = evaluator;
+    this.endWeight = endWeight;
+    this.depth = Math.max(1, depth);
+    this.threads = Math.max(1, threads);
+  }
+
+  /** A game being analyzed, with the scores of its moves as they come in */
+  static class Analysis {
+    final int game;
+    final GameRecord record;
+    final int best[];
+    final int bestScore[];
+    final int playedScore[];
+
+    // Positions of the game not scored yet
+    final AtomicInteger left;
+
+    Analysis(int game, GameRecord record, int moves) {
+      this.game = game;
+      this.record = record;
+      best = new int[record.turns()];
+      bestScore = new int[record.turns()];
+      playedScore = new int[record.turns()];
+      left = new AtomicInteger(moves);
+    }
+  }
+
+  /** A position to be scored: the move played at one turn of a game */
+  static class Position {
+    final Analysis analysis;
+    final int turn;
+    final Board board;
+    final int color;
+    final int played;
+
+    Position(Analysis analysis, int turn, Board board, int color, int played) {
+      this.analysis = analysis;
+      this.turn = turn;
+      this.board = board;
+      this.color = color;
+      this.played = played;
+    }
+  }
+
+  /**
+   * Analyzes the games not yet in the output and appends them to it
+   *
+   * @param output the file the scores are written to, continued if it exists
+   * @throws IOException if the output cannot be read or written
+   */
+  public void analyze(Path output) throws IOException {
+    BitSet done = resume(output);
+    boolean fresh = !Files.exists(output) || Files.size(output) == 0;
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    BlockingQueue<Position> queue = new ArrayBlockingQueue<Position>(threads * QUEUE_PER_THREAD);
+
+    try (OutputStream stream =
+        Files.newOutputStream(output, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      ResultWriter writer = new ResultWriter(stream);
+      if (fresh) {
+        writer.write(HEADER + "\n");
+      }
+
+      ArrayList<Future<Void>> workers = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; t++) {
+        workers.add(pool.submit((Callable<Void>) () -> work(queue, writer)));
+      }
+
+      for (int game = done.nextClearBit(0);
+          game < archive.size();
+          game = done.nextClearBit(game + 1)) {
+        GameRecord record = archive.get(game);
+        record.check();
+        int moves = 0;
+        for (int turn = 0; turn < record.turns(); turn++) {
+          moves += record.move(turn) == GameRecord.PASS ? 0 : 1;
+        }
+        if (moves == 0) {
+          continue;
+        }
+
+        Analysis analysis = new Analysis(game, record, moves);
+        Board board = Board.start();
+        for (int turn = 0; turn < record.turns(); turn++) {
+          int sq = record.move(turn);
+          int color = GameRecord.color(turn);
+          if (sq != GameRecord.PASS) {
+            put(queue, new Position(analysis, turn, new Board(board), color, sq), workers);
+            board.play(color, sq);
+          }
+        }
+        games++;
+      }
+
+      for (int t = 0; t < threads; t++) {
+        put(queue, stop, workers);
+      }
+      for (Future<Void> worker : workers) {
+        worker.get();
+      }
+      writer.flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted, the games finished so far are in " + output);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Waits for room on the queue, giving up if a worker has failed
+   *
+   * @throws ExecutionException if a worker failed
+   */
+  void put(BlockingQueue<Position> queue, Position position, ArrayList<Future<Void>> workers)
+      throws InterruptedException, ExecutionException {
+    while (!queue.offer(position, 100, TimeUnit.MILLISECONDS)) {
+      for (Future<Void> worker : workers) {
+        if (worker.isDone()) {
+          worker.get();
+        }
+      }
+    }
+  }
+
+  /** Scores positions from the queue until it is told to stop */
+  Void work(BlockingQueue<Position> queue, ResultWriter writer) throws InterruptedException {
+    Search search = new Search(evaluator, endWeight, new TranspositionTable(TABLE_MB));
+    search.order = new MoveOrder(White.pointTable);
+
+    for (Position position = queue.take(); position != stop; position = queue.take()) {
+      Analysis analysis = position.analysis;
+      int turn = position.turn;
+      analysis.best[turn] = search.bestMove(position.board, position.color, depth);
+      analysis.bestScore[turn] = search.score;
+      analysis.playedScore[turn] = analysis.bestScore[turn];
+
+      if (position.played != analysis.best[turn]) {
+        int other = position.color == Game.BLACK ? Game.WHITE : Game.BLACK;
+        position.board.play(position.color, position.played);
+        search.start(position.board, Long.MAX_VALUE);
+        analysis.playedScore[turn] =
+            -search.negamax(other, depth - 1, -Search.INFINITE, Search.INFINITE);
+      }
+
+      if (analysis.left.decrementAndGet() == 0) {
+        finish(analysis, writer);
+      }
+    }
+    return null;
+  }
+
+  /** Writes out a game once all of its positions are scored */
+  void finish(Analysis analysis, ResultWriter writer) {
+    GameRecord record = analysis.record;
+    StringBuilder block = new StringBuilder();
+    int moves = 0;
+    int gameLoss = 0;
+
+    for (int turn = 0; turn < record.turns(); turn++) {
+      int played = record.move(turn);
+      if (played == GameRecord.PASS) {
+        continue;
+      }
+      int loss = analysis.bestScore[turn] - analysis.playedScore[turn];
+      block
+          .append(analysis.game)
+          .append(' ')
+          .append(turn)
+          .append(' ')
+          .append(GameRecord.color(turn) == Game.BLACK ? 'X' : 'O')
+          .append(' ')
+          .append(GameRecord.name(played))
+          .append(' ')
+          .append(GameRecord.name(analysis.best[turn]))
+          .append(' ')
+          .append(analysis.bestScore[turn])
+          .append(' ')
+          .append(analysis.playedScore[turn])
+          .append(' ')
+          .append(loss)
+          .append('\n');
+      moves++;
+      gameLoss += loss;
+
+      synchronized (this) {
+        if (loss > worstLoss) {
+          worstLoss = loss;
+          worstGame = analysis.game;
+          worstTurn = turn;
+        }
+      }
+    }
+    block.append("= ").append(analysis.game).append(' ').append(moves).append(' ');
+    block.append(gameLoss).append('\n');
+
+    positions.add(moves);
+    totalLoss.add(gameLoss);
+    writer.write(block);
+    writer.flush();
+  }
+
+  /**
+   * Prepares to continue an earlier run: drops a block cut short at the end of the output and
+   * lists the games already written
+   *
+   * @param output the output of the earlier run, which may not exist
+   * @return the games in the output
+   * @throws IOException if the output cannot be read or cut, or a game ends in a damaged line
+   */
+  BitSet resume(Path output) throws IOException {
+    BitSet done = new BitSet();
+    if (!Files.exists(output)) {
+      return done;
+    }
+
+    // Only lines ended by a newline count, the last line of a run that was stopped may not be
+    long offset = 0;
+    long complete = 0;
+    int number = 0;
+    StringBuilder line = new StringBuilder();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(output))) {
+      for (int c = in.read(); c != -1; c = in.read()) {
+        offset++;
+        if (c != '\n') {
+          line.append((char) c);
+          continue;
+        }
+        number++;
+        if (line.indexOf(HEADER) == 0) {
+          complete = offset;
+        } else if (line.indexOf("= ") == 0) {
+          done.set(finished(line.toString(), output, number));
+          complete = offset;
+        }
+        line.setLength(0);
+      }
+    }
+    try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+      channel.truncate(complete);
+    }
+    return done;
+  }
+
+  /**
+   * @param line the line that ends the block of a game
+   * @param output the file the line is from
+   * @param number the number of the line, from 1
+   * @return the game the block is for
+   * @throws IOException if the line does not start with a game number
+   */
+  static int finished(String line, Path output, int number) throws IOException {
+    String fields[] = line.split(" ");
+    try {
+      int game = Integer.parseInt(fields[1]);
+      if (game >= 0) {
+        return game;
+      }
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      // Reported below
+    }
+    throw new IOException(output + " line " + number + " is not the end of a game: " + line);
+  }
+
+  /** Prints the totals of the analysis */
+  public void printSummary() {
+    long moves = positions.sum();
+    System.out.printf(
+        "%d games, %d moves, average loss %.1f%n",
+        games, moves, moves == 0 ? 0.0 : (double) totalLoss.sum() / moves);
+    if (worstGame >= 0) {
+      System.out.printf("Largest loss %d in game %d at turn %d%n", worstLoss, worstGame, worstTurn);
+    }
+  }
+}
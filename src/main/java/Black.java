@@ -1,5 +1,10 @@
+import java.util.Random;
+
 public class Black {
 
+    // Each player has its own generator so players on different threads don't contend for one
+    Random random = new Random();
+
     /**
      *  This method calls the appropriate strategy.
      *
@@ -25,17 +30,14 @@ public class Black {
      */
     public Game randStrategy(Game game, boolean done, int color) {
 
-        int row = (int)(Math.random()*(game.HEIGHT-2)) + 1;
-        int column = (int)(Math.random()*(game.WIDTH-2)) + 1;
+        int row = random.nextInt(game.HEIGHT-2) + 1;
+        int column = random.nextInt(game.WIDTH-2) + 1;
 
-        while (!done && !game.legalMove(row,column,color,true)) {
-            row = (int)(Math.random()*(game.HEIGHT-2)) + 1;
-            column = (int)(Math.random()*(game.WIDTH-2)) + 1;
+        while (!done && game.play(row,column,color) == 0) {
+            row = random.nextInt(game.HEIGHT-2) + 1;
+            column = random.nextInt(game.WIDTH-2) + 1;
         }
 
-        if (!done)
-            game.board[row][column] = color;
-
         return game;
     }
 
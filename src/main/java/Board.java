@@ -0,0 +1,351 @@
+/**
+ * A bitboard representation of an Othello position. Each color owns one 64-bit word, bit {@code
+ * sq} being set when that color has a disc on square {@code sq = row * 8 + column} (0-based, row
+ * major). Flips are computed with directional shifts and edge masks instead of walking the board
+ * one cell at a time.
+ */
+public class Board {
+  static final int SIZE = 8;
+  static final int SQUARES = 64;
+
+  // Mask that stops east/west shifts from wrapping around to the next row
+  static final long INNER_FILES = 0x7e7e7e7e7e7e7e7eL;
+
+  long black;
+  long white;
+
+  // Zobrist hash of the discs, kept up to date by play and undo
+  long hash;
+
+  /** Creates an empty board */
+  public Board() {}
+
+  /**
+   * Creates a board from the two disc masks
+   *
+   * @param black the squares occupied by Black
+   * @param white the squares occupied by White
+   */
+  public Board(long black, long white) {
+    this.black = black;
+    this.white = white;
+    this.hash = Zobrist.hash(black, white);
+  }
+
+  /**
+   * Creates a copy of the board
+   *
+   * @param another The board to be copied
+   */
+  public Board(Board another) {
+    this.black = another.black;
+    this.white = another.white;
+    this.hash = another.hash;
+  }
+
+  /** @return a board holding the standard starting position */
+  public static Board start() {
+    return new Board(0x0000000810000000L, 0x0000001008000000L);
+  }
+
+  /**
+   * Converts a row and column of the Game matrix into a bit index
+   *
+   * @param r row in the game matrix (1 to 8)
+   * @param c column in the game matrix (1 to 8)
+   * @return the bit index of the square
+   */
+  public static int square(int r, int c) {
+    return (r - 1) * SIZE + (c - 1);
+  }
+
+  /** @return the Game matrix row (1 to 8) of a bit index */
+  public static int row(int sq) {
+    return sq / SIZE + 1;
+  }
+
+  /** @return the Game matrix column (1 to 8) of a bit index */
+  public static int column(int sq) {
+    return sq % SIZE + 1;
+  }
+
+  /**
+   * @param color Black or White
+   * @return the discs owned by color
+   */
+  public long discs(int color) {
+    return color == Game.BLACK ? black : white;
+  }
+
+  /** @return the mask of empty squares */
+  public long empty() {
+    return ~(black | white);
+  }
+
+  /**
+   * Computes the discs that would be flipped if player moved to sq. Each of the 8 directions is
+   * handled by propagating the move along runs of opponent discs with shifts, then checking that
+   * the run is capped by one of the player's discs.
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @param sq the bit index of the move
+   * @return the mask of flipped discs, 0 if the move is illegal
+   */
+  public static long flips(long player, long opponent, int sq) {
+    long move = 1L << sq;
+    if (((player | opponent) & move) != 0) {
+      return 0;
+    }
+
+    long inner = opponent & INNER_FILES;
+    long flipped = 0;
+    long x;
+
+    // East
+    x = (move << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    if (((x << 1) & player) != 0) flipped |= x;
+
+    // West
+    x = (move >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    if (((x >>> 1) & player) != 0) flipped |= x;
+
+    // South
+    x = (move << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    if (((x << 8) & player) != 0) flipped |= x;
+
+    // North
+    x = (move >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    if (((x >>> 8) & player) != 0) flipped |= x;
+
+    // South east
+    x = (move << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    if (((x << 9) & player) != 0) flipped |= x;
+
+    // South west
+    x = (move << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    if (((x << 7) & player) != 0) flipped |= x;
+
+    // North east
+    x = (move >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    if (((x >>> 7) & player) != 0) flipped |= x;
+
+    // North west
+    x = (move >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    if (((x >>> 9) & player) != 0) flipped |= x;
+
+    return flipped;
+  }
+
+  /**
+   * Generates every legal move for player in one pass. Runs of opponent discs are grown from the
+   * player's discs in each direction at once, and the empty square just beyond a run is a move.
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @return the mask of legal moves
+   */
+  public static long moves(long player, long opponent) {
+    long empty = ~(player | opponent);
+    long inner = opponent & INNER_FILES;
+    long moves = 0;
+    long x;
+
+    // East
+    x = (player << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    x |= (x << 1) & inner;
+    moves |= (x << 1) & empty;
+
+    // West
+    x = (player >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    x |= (x >>> 1) & inner;
+    moves |= (x >>> 1) & empty;
+
+    // South
+    x = (player << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    x |= (x << 8) & opponent;
+    moves |= (x << 8) & empty;
+
+    // North
+    x = (player >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    x |= (x >>> 8) & opponent;
+    moves |= (x >>> 8) & empty;
+
+    // South east
+    x = (player << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    x |= (x << 9) & inner;
+    moves |= (x << 9) & empty;
+
+    // South west
+    x = (player << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    x |= (x << 7) & inner;
+    moves |= (x << 7) & empty;
+
+    // North east
+    x = (player >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    x |= (x >>> 7) & inner;
+    moves |= (x >>> 7) & empty;
+
+    // North west
+    x = (player >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    x |= (x >>> 9) & inner;
+    moves |= (x >>> 9) & empty;
+
+    return moves;
+  }
+
+  /**
+   * @param color Black or White
+   * @return the mask of legal moves for color
+   */
+  public long legalMoves(int color) {
+    return color == Game.BLACK ? moves(black, white) : moves(white, black);
+  }
+
+  /** @return true if neither player has a legal move */
+  public boolean gameOver() {
+    return moves(black, white) == 0 && moves(white, black) == 0;
+  }
+
+  /**
+   * Unpacks a move mask into a compact list of bit indices
+   *
+   * @param moves the mask of moves
+   * @param list receives the bit indices in ascending order, must hold at least 64 entries
+   * @return the number of moves written into list
+   */
+  public static int moveList(long moves, int[] list) {
+    int count = 0;
+    while (moves != 0) {
+      list[count++] = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+    }
+    return count;
+  }
+
+  /**
+   * Plays a move for color if it is legal
+   *
+   * @param color Black or White
+   * @param sq the bit index of the move
+   * @return the mask of flipped discs, 0 if the move was illegal and nothing changed
+   */
+  public long play(int color, int sq) {
+    long flipped = color == Game.BLACK ? flips(black, white, sq) : flips(white, black, sq);
+    if (flipped != 0) {
+      long placed = flipped | (1L << sq);
+      if (color == Game.BLACK) {
+        black |= placed;
+        white &= ~flipped;
+      } else {
+        white |= placed;
+        black &= ~flipped;
+      }
+      hash ^= Zobrist.move(color, sq, flipped);
+    }
+    return flipped;
+  }
+
+  /**
+   * Takes back a move made by play
+   *
+   * @param color the player who made the move
+   * @param sq the bit index of the move
+   * @param flipped the mask returned by play
+   */
+  public void undo(int color, int sq, long flipped) {
+    long placed = flipped | (1L << sq);
+    if (color == Game.BLACK) {
+      black &= ~placed;
+      white |= flipped;
+    } else {
+      white &= ~placed;
+      black |= flipped;
+    }
+    hash ^= Zobrist.move(color, sq, flipped);
+  }
+
+  /** Prints out the board for debugging purposes. */
+  public void printBoard() {
+    for (int sq = 0; sq < SQUARES; sq++) {
+      long bit = 1L << sq;
+      int value = (black & bit) != 0 ? Game.BLACK : (white & bit) != 0 ? Game.WHITE : Game.EMPTY;
+      System.out.print("[" + value + "]");
+      if (sq % SIZE == SIZE - 1) {
+        System.out.println();
+      }
+    }
+  }
+}
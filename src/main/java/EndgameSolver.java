@@ -0,0 +1,360 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solves the end of the game exactly. Instead of the heuristic evaluation the solver searches to
+ * the last move and scores the final disc difference, either exactly or, faster, only as a win,
+ * loss or draw.
+ *
+ * <p>After the first move, every move is first searched with a null window that only proves it
+ * worse, which is cheap when the ordering is good.
+ *
+ * <p>Moves are ordered fastest-first while many squares are empty: moves that leave the opponent
+ * the fewest replies come first, since they shrink the tree the most. With few empties left the
+ * ordering costs more than it saves, and moves are only ordered by parity, playing first in the
+ * quadrants with an odd number of empties so that we get the last move in each region.
+ */
+public class EndgameSolver {
+  // Largest possible disc difference
+  static final int MAX_SCORE = Board.SQUARES;
+
+  // With this many empties or fewer, moves are ordered by parity only
+  static final int PARITY_EMPTIES = 6;
+
+  // With fewer empties than this, positions are not stored in the transposition table
+  static final int TABLE_EMPTIES = 8;
+
+  // Kept apart from Search entries in a shared table, since scores are disc differences here
+  static final long KEY_SALT = 0x3e7d5a11c0ffee5L;
+
+  static final long QUADRANTS[] = {
+    0x000000000f0f0f0fL, 0x00000000f0f0f0f0L, 0x0f0f0f0f00000000L, 0xf0f0f0f000000000L
+  };
+  static final long CORNERS = 0x8100000000000081L;
+
+  final TranspositionTable table;
+
+  // Move lists and their ordering values for each number of empties, so solving allocates nothing
+  final int lists[][] = new int[Board.SQUARES + 1][Board.SQUARES];
+  final int values[][] = new int[Board.SQUARES + 1][Board.SQUARES];
+
+  // Results and limits of the last solve, as in Search
+  long nodes = 0;
+  int score = 0;
+  long startTime = 0;
+  long budget = Long.MAX_VALUE;
+  volatile boolean stopped = false;
+
+  // Checked whenever a solve starts, as in Search
+  AtomicBoolean cancelled = null;
+
+  /**
+   * Creates a solver
+   *
+   * @param table a transposition table to remember positions in, may be shared with a Search, or
+   *     null to solve without one
+   */
+  public EndgameSolver(TranspositionTable table) {
+    this.table = table;
+  }
+
+  /**
+   * Finds the best move of a position
+   *
+   * @param position the position to be solved
+   * @param color the player to move
+   * @param exact true for the exact disc difference, false to only tell wins, draws and losses
+   * @param millis the time after which to give up
+   * @return the bit index of the best move, -1 if color has to pass or time ran out
+   */
+  public int bestMove(Board position, int color, boolean exact, long millis) {
+    long player = position.discs(color);
+    long opponent = position.discs(color == Game.BLACK ? Game.WHITE : Game.BLACK);
+
+    nodes = 0;
+    stopped = false;
+    if (cancelled != null && cancelled.get()) {
+      stopped = true;
+    }
+    startTime = System.nanoTime();
+    budget = Search.nanos(millis);
+    if (table != null) {
+      table.newSearch();
+    }
+
+    int alpha = exact ? -MAX_SCORE - 1 : -1;
+    int beta = exact ? MAX_SCORE + 1 : 1;
+    int best = -1;
+
+    int list[] = new int[Board.SQUARES];
+    int count =
+        order(player, opponent, Board.moves(player, opponent), list, new int[Board.SQUARES]);
+
+    for (int i = 0; i < count && alpha < beta; i++) {
+      int sq = list[i];
+      long flipped = Board.flips(player, opponent, sq);
+      int value =
+          -solve(opponent & ~flipped, player | flipped | (1L << sq), -beta, -alpha, false);
+      if (stopped) {
+        return -1;
+      }
+      if (best == -1 || value > alpha) {
+        alpha = value;
+        best = sq;
+      }
+    }
+
+    score = alpha;
+    return best;
+  }
+
+  /**
+   * Solves a position
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @param alpha the score player is already guaranteed
+   * @param beta the score the opponent is already guaranteed
+   * @param passed true if the last move was a pass
+   * @return the final disc difference for player, exact if it lies between alpha and beta
+   */
+  int solve(long player, long opponent, int alpha, int beta, boolean passed) {
+    if ((++nodes & 1023) == 0 && System.nanoTime() - startTime >= budget) {
+      stopped = true;
+    }
+    if (stopped) {
+      return 0;
+    }
+
+    long empty = ~(player | opponent);
+    if (empty == 0) {
+      return difference(player, opponent);
+    }
+    if ((empty & (empty - 1)) == 0) {
+      return last(player, opponent, Long.numberOfTrailingZeros(empty));
+    }
+
+    long moves = Board.moves(player, opponent);
+    if (moves == 0) {
+      if (passed) {
+        return difference(player, opponent);
+      }
+      return -solve(opponent, player, -beta, -alpha, true);
+    }
+
+    int empties = Long.bitCount(empty);
+    if (empties <= PARITY_EMPTIES) {
+      return shallow(player, opponent, moves, empty, alpha, beta);
+    }
+
+    // Use what an earlier solve of this position already proved
+    // Positions are stored in their canonical orientation, so all 8 symmetric positions share
+    // an entry and its move is moved back to this orientation
+    long key = 0;
+    int symmetry = 0;
+    int tableMove = -1;
+    if (table != null && empties >= TABLE_EMPTIES) {
+      symmetry = Symmetry.canonical(player, opponent);
+      key = key(Symmetry.transform(symmetry, player), Symmetry.transform(symmetry, opponent));
+      long entry = table.probe(key);
+      if (entry != 0) {
+        tableMove = TranspositionTable.move(entry);
+        if (tableMove >= 0) {
+          tableMove = Symmetry.square(Symmetry.inverse(symmetry), tableMove);
+        }
+        int value = TranspositionTable.score(entry);
+        int flag = TranspositionTable.flag(entry);
+        if (flag == TranspositionTable.EXACT) {
+          return value;
+        } else if (flag == TranspositionTable.LOWER && value > alpha) {
+          alpha = value;
+        } else if (flag == TranspositionTable.UPPER && value < beta) {
+          beta = value;
+        }
+        if (alpha >= beta) {
+          return value;
+        }
+      }
+    }
+
+    int original = alpha;
+    int list[] = lists[empties];
+    int count = order(player, opponent, moves, list, values[empties]);
+    first(list, count, tableMove);
+    int best = -MAX_SCORE - 1;
+    int bestMove = -1;
+
+    for (int i = 0; i < count; i++) {
+      int sq = list[i];
+      long flipped = Board.flips(player, opponent, sq);
+      long nextPlayer = opponent & ~flipped;
+      long nextOpponent = player | flipped | (1L << sq);
+
+      // The first move is usually best: prove the others worse with a null window, and only
+      // solve them properly if that fails
+      int value;
+      if (i == 0) {
+        value = -solve(nextPlayer, nextOpponent, -beta, -alpha, false);
+      } else {
+        value = -solve(nextPlayer, nextOpponent, -alpha - 1, -alpha, false);
+        if (value > alpha && value < beta) {
+          value = -solve(nextPlayer, nextOpponent, -beta, -alpha, false);
+        }
+      }
+      if (stopped) {
+        return 0;
+      }
+      if (value > best) {
+        best = value;
+        bestMove = sq;
+        if (value > alpha) {
+          alpha = value;
+          if (alpha >= beta) {
+            break;
+          }
+        }
+      }
+    }
+
+    if (table != null && empties >= TABLE_EMPTIES) {
+      int flag =
+          best <= original
+              ? TranspositionTable.UPPER
+              : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+      table.store(
+          key, empties, flag, best, bestMove < 0 ? bestMove : Symmetry.square(symmetry, bestMove));
+    }
+    return best;
+  }
+
+  /**
+   * Solves a position with few empties, trying moves in odd quadrants before moves in even ones
+   * and without any other ordering
+   */
+  int shallow(long player, long opponent, long moves, long empty, int alpha, int beta) {
+    long odd = 0;
+    for (long quadrant : QUADRANTS) {
+      if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+        odd |= quadrant;
+      }
+    }
+
+    int best = -MAX_SCORE - 1;
+    for (int pass = 0; pass < 2; pass++) {
+      long group = moves & (pass == 0 ? odd : ~odd);
+      while (group != 0) {
+        int sq = Long.numberOfTrailingZeros(group);
+        group &= group - 1;
+
+        long flipped = Board.flips(player, opponent, sq);
+        int value =
+            -solve(opponent & ~flipped, player | flipped | (1L << sq), -beta, -alpha, false);
+        if (value > best) {
+          best = value;
+          if (value > alpha) {
+            alpha = value;
+            if (alpha >= beta) {
+              return best;
+            }
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Scores the last empty square directly: player plays it if possible, otherwise the opponent
+   * does, otherwise it stays empty
+   */
+  static int last(long player, long opponent, int sq) {
+    long flipped = Board.flips(player, opponent, sq);
+    if (flipped != 0) {
+      return difference(player | flipped | (1L << sq), opponent & ~flipped);
+    }
+    flipped = Board.flips(opponent, player, sq);
+    if (flipped != 0) {
+      return difference(player & ~flipped, opponent | flipped | (1L << sq));
+    }
+    return difference(player, opponent);
+  }
+
+  /**
+   * Puts moves in fastest-first order: fewest replies for the opponent first, with corners and
+   * moves into odd quadrants as tie breakers
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @param moves the legal moves
+   * @param list receives the moves in the order to try them
+   * @param values scratch space for the ordering values
+   * @return the number of moves
+   */
+  static int order(long player, long opponent, long moves, int list[], int values[]) {
+    long empty = ~(player | opponent);
+    int count = 0;
+
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long bit = 1L << sq;
+      long flipped = Board.flips(player, opponent, sq);
+      long after = opponent & ~flipped;
+
+      int value = -16 * Long.bitCount(Board.moves(after, player | flipped | bit));
+      if ((bit & CORNERS) != 0) {
+        value += 8;
+      }
+      for (long quadrant : QUADRANTS) {
+        if ((bit & quadrant) != 0 && (Long.bitCount(empty & quadrant) & 1) != 0) {
+          value += 4;
+        }
+      }
+
+      // Insertion sort, best value first
+      int i = count++;
+      while (i > 0 && values[i - 1] < value) {
+        values[i] = values[i - 1];
+        list[i] = list[i - 1];
+        i--;
+      }
+      values[i] = value;
+      list[i] = sq;
+    }
+    return count;
+  }
+
+  /**
+   * Moves the best move of an earlier solve to the front of the list
+   *
+   * @param list the ordered moves
+   * @param count the number of moves
+   * @param move the move to try first, -1 for none
+   */
+  static void first(int list[], int count, int move) {
+    for (int i = 1; i < count; i++) {
+      if (list[i] == move) {
+        System.arraycopy(list, 0, list, 1, i);
+        list[0] = move;
+        return;
+      }
+    }
+  }
+
+  static int difference(long player, long opponent) {
+    return Long.bitCount(player) - Long.bitCount(opponent);
+  }
+
+  /**
+   * @return the table key of a position, independent of which color is to move. Unlike Search the
+   *     solver hashes each stored position from scratch anyway, so keying it canonically only adds
+   *     finding the symmetry
+   */
+  static long key(long player, long opponent) {
+    return Zobrist.mix(player ^ Zobrist.mix(opponent ^ KEY_SALT));
+  }
+
+  /** Asks a running solve to stop as soon as possible */
+  public void stop() {
+    stopped = true;
+  }
+}
@@ -0,0 +1,15 @@
+/**
+ * Scores a position for the search. Scores are from the point of view of the player to move, so
+ * the same evaluator serves both colors in a negamax search.
+ */
+public interface Evaluator {
+
+  /**
+   * Scores a position that is not over
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @return a score, higher is better for player
+   */
+  int evaluate(long player, long opponent);
+}
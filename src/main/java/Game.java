@@ -6,6 +6,22 @@ public class Game {
   static final int HEIGHT = 10;
   final int board[][] = new int[WIDTH][HEIGHT];
 
+  // The same discs as bitboards and their counts, kept up to date by play, undo and setBoard so
+  // that nothing has to scan the matrix. The flips of legalMove and pointMove go through play.
+  long black = 0;
+  long white = 0;
+  int blackCount = 0;
+  int whiteCount = 0;
+  int empties = (WIDTH - 2) * (HEIGHT - 2);
+
+  // Changes with every move, undo and setBoard, so a view can tell the position has not changed
+  int version = 0;
+
+  // Legal moves of each color and whether neither has one, worked out with every change
+  long blackMoves = 0;
+  long whiteMoves = 0;
+  boolean over = true;
+
   /** Default constructor */
   public Game() {}
 
@@ -20,6 +36,121 @@ public class Game {
         this.board[i][j] = another.board[i][j];
       }
     }
+    this.black = another.black;
+    this.white = another.white;
+    this.blackCount = another.blackCount;
+    this.whiteCount = another.whiteCount;
+    this.empties = another.empties;
+    this.version = another.version;
+    this.blackMoves = another.blackMoves;
+    this.whiteMoves = another.whiteMoves;
+    this.over = another.over;
+  }
+
+  /**
+   * Creates a game holding the position of a bitboard
+   *
+   * @param position The bitboard to be converted
+   */
+  public Game(Board position) {
+    setBoard(position);
+  }
+
+  /**
+   * Converts the game into a bitboard
+   *
+   * @return a Board holding the same discs as this game
+   */
+  public Board toBoard() {
+    return new Board(black, white);
+  }
+
+  /**
+   * Overwrites the game matrix, including the off-board ring, with the discs of a bitboard
+   *
+   * @param position The bitboard to be copied
+   */
+  public void setBoard(Board position) {
+    for (int i = 0; i < HEIGHT; i++) {
+      for (int j = 0; j < WIDTH; j++) {
+        if (i == 0 || j == 0 || i == HEIGHT - 1 || j == WIDTH - 1) {
+          board[i][j] = -1;
+        } else {
+          long bit = 1L << Board.square(i, j);
+          if ((position.black & bit) != 0) {
+            board[i][j] = BLACK;
+          } else if ((position.white & bit) != 0) {
+            board[i][j] = WHITE;
+          } else {
+            board[i][j] = EMPTY;
+          }
+        }
+      }
+    }
+
+    black = position.black;
+    white = position.white;
+    blackCount = Long.bitCount(black);
+    whiteCount = Long.bitCount(white);
+    empties = Long.bitCount(position.empty());
+    changed();
+  }
+
+  /** Brings the legal moves and game status up to date after the discs have changed */
+  void changed() {
+    blackMoves = Board.moves(black, white);
+    whiteMoves = Board.moves(white, black);
+    over = (blackMoves | whiteMoves) == 0;
+    version++;
+  }
+
+  /**
+   * Finds every legal move for a player
+   *
+   * @param color color of the player - Black or White
+   * @return a mask with bit Board.square(r, c) set for every legal move (r, c)
+   */
+  public long legalMoves(int color) {
+    return color == BLACK ? blackMoves : whiteMoves;
+  }
+
+  /**
+   * Decide if a player can move anywhere
+   *
+   * @param color color of the player - Black or White
+   * @return true if the player has at least one legal move
+   */
+  public boolean canMove(int color) {
+    return legalMoves(color) != 0;
+  }
+
+  /**
+   * Decide if the game is over
+   *
+   * @return true if neither player has a legal move
+   */
+  public boolean gameOver() {
+    return over;
+  }
+
+  /**
+   * Decide who won
+   *
+   * @return -1 if the game is unfinished, 0 in case of a tie, else the color of the winner
+   */
+  public int winner() {
+    if (!over) {
+      return -1;
+    }
+    return blackCount > whiteCount ? BLACK : whiteCount > blackCount ? WHITE : 0;
+  }
+
+  /**
+   * @param color color of the player - Black or White
+   * @return the number of discs of that color on the board
+   */
+  public int count(int color) {
+    return color == BLACK ? blackCount : whiteCount;
   }
 
   /**
@@ -28,10 +159,14 @@ public class Game {
    * @param r row in the game matrix
    * @param c column in the game matrix
    * @param color color of the player - Black or White
-   * @param flip true if the player wants to flip the discs
+   * @param flip true to make the move with play() if it is legal
    * @return true if the move is legal, else false
    */
   public boolean legalMove(int r, int c, int color, boolean flip) {
+    if (flip) {
+      return play(r, c, color) != 0;
+    }
+
     // Initialize boolean legal as false
     boolean legal = false;
 
@@ -75,21 +210,6 @@ public class Game {
             if (current == color) {
               found = true;
               legal = true;
-
-              // If flip is true, reverse the directions and start flipping until
-              // the algorithm reaches the original location
-              if (flip) {
-                posX -= x;
-                posY -= y;
-                current = board[posY][posX];
-
-                while (current != 0) {
-                  board[posY][posX] = color;
-                  posX -= x;
-                  posY -= y;
-                  current = board[posY][posX];
-                }
-              }
             }
             // If the algorithm reaches an out of bounds area or an empty space
             // end the loop to check a new direction, but do not set legal to true yet
@@ -110,7 +230,7 @@ public class Game {
    * @param r Row in the game matrix
    * @param c Column in the game matrix
    * @param color Color of the player - Black or White
-   * @param flip True if the player wants to flip the discs
+   * @param flip True to make the move with play() if it is legal, after it has been scored
    * @param point A table of Multipoints to determine the numeric value of a move
    * @return A move object that also indicates whether or not the move is legal
    */
@@ -151,19 +271,6 @@ public class Game {
               newMove.x = c;
               newMove.y = r;
               newMove.points += point[c][r];
-
-              if (flip) {
-                posX -= x;
-                posY -= y;
-                current = board[posY][posX];
-
-                while (current != 0) {
-                  board[posY][posX] = color;
-                  posX -= x;
-                  posY -= y;
-                  current = board[posY][posX];
-                }
-              }
             } else if (current == -1 || current == 0) {
               // The pieces in this direction won't be flipped so reset sum to 0
               sum = 0;
@@ -179,9 +286,96 @@ public class Game {
         }
       }
     }
+
+    if (flip && newMove.legal) {
+      play(r, c, color);
+    }
     return newMove;
   }
 
+  /**
+   * Places a disc and flips the captured discs in place, recording which discs were flipped so the
+   * move can be taken back with undo()
+   *
+   * @param r Row in the game matrix
+   * @param c Column in the game matrix
+   * @param color Color of the player - Black or White
+   * @return a mask with bit Board.square(row, column) set for every flipped disc, 0 if the move is
+   *     illegal and the board was not changed
+   */
+  public long play(int r, int c, int color) {
+    long flipped = 0;
+
+    // The border squares are -1, only an empty square inside the board can be played
+    if (board[r][c] == 0) {
+      long player = color == BLACK ? black : white;
+      long opponent = color == BLACK ? white : black;
+      flipped = Board.flips(player, opponent, Board.square(r, c));
+
+      if (flipped != 0) {
+        long bits = flipped;
+        while (bits != 0) {
+          int sq = Long.numberOfTrailingZeros(bits);
+          board[Board.row(sq)][Board.column(sq)] = color;
+          bits &= bits - 1;
+        }
+        board[r][c] = color;
+
+        long placed = flipped | (1L << Board.square(r, c));
+        int count = Long.bitCount(flipped);
+        if (color == BLACK) {
+          black |= placed;
+          white &= ~flipped;
+          blackCount += count + 1;
+          whiteCount -= count;
+        } else {
+          white |= placed;
+          black &= ~flipped;
+          whiteCount += count + 1;
+          blackCount -= count;
+        }
+        empties--;
+        changed();
+      }
+    }
+
+    return flipped;
+  }
+
+  /**
+   * Takes back a move made by play()
+   *
+   * @param r Row in the game matrix
+   * @param c Column in the game matrix
+   * @param color Color of the player who made the move
+   * @param flipped The mask returned by play()
+   */
+  public void undo(int r, int c, int color, long flipped) {
+    int other = color == BLACK ? WHITE : BLACK;
+    long placed = flipped | (1L << Board.square(r, c));
+    int count = Long.bitCount(flipped);
+    if (color == BLACK) {
+      black &= ~placed;
+      white |= flipped;
+      blackCount -= count + 1;
+      whiteCount += count;
+    } else {
+      white &= ~placed;
+      black |= flipped;
+      whiteCount -= count + 1;
+      blackCount += count;
+    }
+    empties++;
+    changed();
+
+    while (flipped != 0) {
+      int sq = Long.numberOfTrailingZeros(flipped);
+      board[Board.row(sq)][Board.column(sq)] = other;
+      flipped &= flipped - 1;
+    }
+    board[r][c] = EMPTY;
+  }
+
   /** Prints out the board for debugging purposes. */
   public void printBoard() {
     for (int i = 1; i <= HEIGHT - 2; i++) {
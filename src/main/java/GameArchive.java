@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The games of an archive written by GameRecordWriter. The archive and its index are
+ * memory-mapped, so opening an archive reads nothing, any game is found in constant time through
+ * the offset in the index, and records are read straight from the mapping rather than copied.
+ *
+ * <p>If the index is missing or does not match the archive, for example because the writer is
+ * still running, the archive is scanned once to build the offsets in memory instead.
+ */
+public class GameArchive implements Iterable<GameRecord> {
+  final MappedByteBuffer records;
+  final LongBuffer offsets;
+
+  /**
+   * Opens an archive
+   *
+   * @param file the archive file
+   * @throws IOException if the file cannot be read or is not an archive
+   */
+  public GameArchive(Path file) throws IOException {
+    records = map(file, GameRecordWriter.MAGIC);
+
+    Path indexFile = GameRecordWriter.indexFile(file);
+    LongBuffer index = null;
+    if (Files.exists(indexFile)) {
+      MappedByteBuffer mapped = map(indexFile, GameRecordWriter.INDEX_MAGIC);
+      if ((mapped.capacity() - 4) % 8 == 0) {
+        mapped.position(4);
+        index = mapped.slice().asLongBuffer();
+      }
+    }
+    offsets = index != null && matches(records, index) ? index : LongBuffer.wrap(scan(records));
+  }
+
+  /**
+   * Maps a whole file read-only
+   *
+   * @throws IOException if the file cannot be read or does not start with the magic number
+   */
+  static MappedByteBuffer map(Path file, int magic) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < 4 || length > Integer.MAX_VALUE) {
+        throw new IOException(file + " is not a game archive");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+    if (buffer.getInt(0) != magic) {
+      throw new IOException(file + " is not a game archive");
+    }
+    return buffer;
+  }
+
+  /** @return true if the last offset of the index is that of the last record of the archive */
+  static boolean matches(ByteBuffer records, LongBuffer index) {
+    int count = index.limit();
+    if (count == 0) {
+      return records.limit() == 4;
+    }
+    long last = index.get(count - 1);
+    if (last < 4 || last + GameRecord.HEADER_BYTES > records.limit()) {
+      return false;
+    }
+    GameRecord record = new GameRecord(records, (int) last);
+    return last + record.bytes() == records.limit();
+  }
+
+  /**
+   * Finds the records of an archive by reading them one after the other
+   *
+   * @param records the archive
+   * @return the offset of every complete record, a record cut short at the end is left out
+   */
+  static long[] scan(ByteBuffer records) {
+    long found[] = new long[1024];
+    int count = 0;
+    int offset = 4;
+    while (offset + GameRecord.HEADER_BYTES <= records.limit()) {
+      int bytes = new GameRecord(records, offset).bytes();
+      if (offset + bytes > records.limit()) {
+        break;
+      }
+      if (count == found.length) {
+        long grown[] = new long[count * 2];
+        System.arraycopy(found, 0, grown, 0, count);
+        found = grown;
+      }
+      found[count++] = offset;
+      offset += bytes;
+    }
+    long result[] = new long[count];
+    System.arraycopy(found, 0, result, 0, count);
+    return result;
+  }
+
+  /** @return the number of games in the archive */
+  public int size() {
+    return offsets.limit();
+  }
+
+  /**
+   * @param game the position of a game in the archive, from 0
+   * @return the record of the game
+   */
+  public GameRecord get(int game) {
+    return new GameRecord(records, (int) offsets.get(game));
+  }
+
+  /** @return the games in the order they were written */
+  @Override
+  public Iterator<GameRecord> iterator() {
+    return new Iterator<GameRecord>() {
+      int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < size();
+      }
+
+      @Override
+      public GameRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return get(next++);
+      }
+    };
+  }
+}
@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * One recorded game, read in place from the buffer of a GameArchive without copying it.
+ *
+ * <p>A record is a fixed header followed by one byte per turn, Black's turns first and the two
+ * players alternating. A byte is the bit index of the square played, or PASS when the player to
+ * move could not move.
+ *
+ * <pre>
+ *   int   number of the game in its tournament
+ *   byte  Black player   byte  White player (RANDOM, ENGINE or HUMAN)
+ *   long  seed of Black's random moves
+ *   byte  Black discs    byte  White discs at the end
+ *   byte  number of turns, unsigned
+ *   byte  move of each turn
+ * </pre>
+ */
+public class GameRecord {
+  static final int HEADER_BYTES = 17;
+
+  // Move byte of a turn where the player had to pass
+  static final int PASS = Board.SQUARES;
+
+  // Kinds of player
+  static final int RANDOM = 0;
+  static final int ENGINE = 1;
+  static final int HUMAN = 2;
+
+  static final String PLAYERS[] = {"random", "engine", "human"};
+
+  // A game never has more turns than this, every move fills a square and passes never follow
+  // each other
+  static final int MAX_TURNS = 2 * Board.SQUARES;
+
+  final ByteBuffer buffer;
+  final int offset;
+
+  /**
+   * @param buffer the buffer holding the record
+   * @param offset the position of the record in the buffer
+   */
+  GameRecord(ByteBuffer buffer, int offset) {
+    this.buffer = buffer;
+    this.offset = offset;
+  }
+
+  /** @return the number of the game in its tournament */
+  public int number() {
+    return buffer.getInt(offset);
+  }
+
+  /** @return the kind of player that played Black */
+  public int blackPlayer() {
+    return buffer.get(offset + 4);
+  }
+
+  /** @return the kind of player that played White */
+  public int whitePlayer() {
+    return buffer.get(offset + 5);
+  }
+
+  /** @return the seed Black's random moves were drawn with */
+  public long seed() {
+    return buffer.getLong(offset + 6);
+  }
+
+  /**
+   * @param color BLACK or WHITE
+   * @return the discs color had at the end of the game
+   */
+  public int count(int color) {
+    return buffer.get(offset + (color == Game.BLACK ? 14 : 15));
+  }
+
+  /** @return the color of the winner, 0 for a tie */
+  public int winner() {
+    int difference = count(Game.BLACK) - count(Game.WHITE);
+    return difference > 0 ? Game.BLACK : difference < 0 ? Game.WHITE : 0;
+  }
+
+  /** @return the number of turns, passes included */
+  public int turns() {
+    return buffer.get(offset + 16) & 0xff;
+  }
+
+  /**
+   * @param turn the number of a turn, from 0
+   * @return the bit index of the square played, PASS if the player passed
+   */
+  public int move(int turn) {
+    return buffer.get(offset + HEADER_BYTES + turn);
+  }
+
+  /**
+   * @param turn the number of a turn, from 0
+   * @return the player to move at that turn
+   */
+  public static int color(int turn) {
+    return (turn & 1) == 0 ? Game.BLACK : Game.WHITE;
+  }
+
+  /**
+   * Replays the start of the game
+   *
+   * @param turns the number of turns to replay
+   * @return the position after them
+   */
+  public Board position(int turns) {
+    Board board = Board.start();
+    for (int turn = 0; turn < turns; turn++) {
+      int sq = move(turn);
+      if (sq != PASS) {
+        board.play(color(turn), sq);
+      }
+    }
+    return board;
+  }
+
+  /**
+   * Checks that the record holds a game that could have been played, so that a damaged archive is
+   * reported rather than printed or analyzed as nonsense
+   *
+   * @throws IOException naming the game and what is wrong with it
+   */
+  public void check() throws IOException {
+    if (!player(blackPlayer()) || !player(whitePlayer())) {
+      throw new IOException("Game " + number() + " has an unknown kind of player");
+    }
+    Board board = Board.start();
+    for (int turn = 0; turn < turns(); turn++) {
+      int sq = move(turn);
+      long moves = board.legalMoves(color(turn));
+      if (sq == PASS ? moves != 0 : sq < 0 || sq >= Board.SQUARES || (moves & (1L << sq)) == 0) {
+        throw new IOException("Game " + number() + " has an illegal move at turn " + turn);
+      }
+      if (sq != PASS) {
+        board.play(color(turn), sq);
+      }
+    }
+  }
+
+  static boolean player(int kind) {
+    return kind >= 0 && kind < PLAYERS.length;
+  }
+
+  /** @return the number of bytes the record takes */
+  public int bytes() {
+    return HEADER_BYTES + turns();
+  }
+
+  /**
+   * @param sq the bit index of a square, or PASS
+   * @return the name of the square, a1 to h8, or "pass"
+   */
+  public static String name(int sq) {
+    if (sq == PASS) {
+      return "pass";
+    }
+    return "" + (char) ('a' + Board.column(sq) - 1) + Board.row(sq);
+  }
+
+  /** @return the game on one line: number, players, seed, result and moves */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(number())
+        .append(' ')
+        .append(PLAYERS[blackPlayer()])
+        .append(" vs ")
+        .append(PLAYERS[whitePlayer()])
+        .append(" seed ")
+        .append(seed())
+        .append(' ')
+        .append(count(Game.BLACK))
+        .append('-')
+        .append(count(Game.WHITE));
+    for (int turn = 0; turn < turns(); turn++) {
+      sb.append(' ').append(name(move(turn)));
+    }
+    return sb.toString();
+  }
+}
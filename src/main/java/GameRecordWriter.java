@@ -0,0 +1,186 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends GameRecords to an archive file, and the offset of each record to its index file, through
+ * buffers that are written out only when full, so recording millions of games costs a few large
+ * writes rather than one per game. Workers of a tournament may share one writer.
+ *
+ * <p>The archive starts with MAGIC and the index with INDEX_MAGIC, each followed by the records or
+ * offsets of any number of runs. Records are always written out before the offsets that point to
+ * them, so an archive cut short by a crash never has an index entry past its end.
+ */
+public class GameRecordWriter implements Closeable {
+  static final int MAGIC = 0x4f475231; // "OGR1"
+  static final int INDEX_MAGIC = 0x4f474931; // "OGI1"
+  static final int BUFFER_BYTES = 1 << 16;
+
+  final FileChannel records;
+  final FileChannel index;
+  final ByteBuffer recordBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+  final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+  // Where the next record starts in the archive
+  long offset;
+
+  /**
+   * Opens an archive for appending, creating it and its index if they do not exist, and repairing
+   * them if an earlier run was cut short
+   *
+   * @param file the archive file
+   * @throws IOException if the files cannot be opened, or exist but are not an archive
+   */
+  public GameRecordWriter(Path file) throws IOException {
+    records = open(file, MAGIC);
+    try {
+      index = open(indexFile(file), INDEX_MAGIC);
+    } catch (IOException e) {
+      records.close();
+      throw e;
+    }
+
+    // A run that crashed may have left a record cut short or offsets missing from the index
+    try {
+      MappedByteBuffer archive = records.map(FileChannel.MapMode.READ_ONLY, 0, records.size());
+      long indexBytes = index.size() - 4;
+      if (indexBytes % 8 != 0
+          || !GameArchive.matches(
+              archive, index.map(FileChannel.MapMode.READ_ONLY, 4, indexBytes).asLongBuffer())) {
+        repair(archive);
+      }
+      offset = records.size();
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Cuts the archive after its last complete record and writes the index again from scratch
+   *
+   * @param archive the archive mapped read-only
+   * @throws IOException if the files cannot be written
+   */
+  void repair(MappedByteBuffer archive) throws IOException {
+    long found[] = GameArchive.scan(archive);
+    long end = 4;
+    if (found.length > 0) {
+      long last = found[found.length - 1];
+      end = last + new GameRecord(archive, (int) last).bytes();
+    }
+    records.truncate(end);
+    records.position(end);
+
+    index.truncate(4);
+    index.position(4);
+    for (long offset : found) {
+      if (!indexBuffer.hasRemaining()) {
+        drain(indexBuffer, index);
+      }
+      indexBuffer.putLong(offset);
+    }
+    drain(indexBuffer, index);
+  }
+
+  /**
+   * Opens a file for appending, writing the magic number to it if it is new
+   *
+   * @throws IOException if the file cannot be opened or starts with another magic number
+   */
+  static FileChannel open(Path file, int magic) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(4);
+      if (channel.size() == 0) {
+        header.putInt(magic).flip();
+        while (header.hasRemaining()) {
+          channel.write(header);
+        }
+      } else if (channel.read(header, 0) < 4 || header.getInt(0) != magic) {
+        throw new IOException(file + " is not a game archive");
+      }
+      channel.position(channel.size());
+      return channel;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** @return the index file of an archive */
+  static Path indexFile(Path file) {
+    Path name = Paths.get(file.getFileName() + ".idx");
+    return file.resolveSibling(name);
+  }
+
+  /**
+   * Appends a game
+   *
+   * @param number the number of the game in its tournament
+   * @param blackPlayer the kind of player that played Black, such as GameRecord.RANDOM
+   * @param whitePlayer the kind of player that played White
+   * @param seed the seed Black's random moves were drawn with
+   * @param game the finished game
+   * @param moves the move of each turn, GameRecord.PASS for a pass
+   * @param turns the number of turns
+   * @throws IOException if the archive cannot be written
+   */
+  public synchronized void write(
+      int number, int blackPlayer, int whitePlayer, long seed, Game game, byte moves[], int turns)
+      throws IOException {
+    if (recordBuffer.remaining() < GameRecord.HEADER_BYTES + turns) {
+      flush();
+    }
+    recordBuffer
+        .putInt(number)
+        .put((byte) blackPlayer)
+        .put((byte) whitePlayer)
+        .putLong(seed)
+        .put((byte) game.count(Game.BLACK))
+        .put((byte) game.count(Game.WHITE))
+        .put((byte) turns)
+        .put(moves, 0, turns);
+
+    if (!indexBuffer.hasRemaining()) {
+      flush();
+    }
+    indexBuffer.putLong(offset);
+    offset += GameRecord.HEADER_BYTES + turns;
+  }
+
+  /**
+   * Writes out everything buffered, the records before their offsets
+   *
+   * @throws IOException if the files cannot be written
+   */
+  public synchronized void flush() throws IOException {
+    drain(recordBuffer, records);
+    drain(indexBuffer, index);
+  }
+
+  static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      records.close();
+      index.close();
+    }
+  }
+}
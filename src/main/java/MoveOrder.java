@@ -0,0 +1,142 @@
+/**
+ * Decides in which order a Search tries the moves of a position. Alpha-beta prunes the most when
+ * the best move comes first, so moves are tried in this order: the best move stored in the
+ * transposition table, then the killer moves that caused a cutoff at the same ply elsewhere in the
+ * tree, then the rest by their history of causing cutoffs, with the point table as the prior that
+ * breaks ties (corners first, the squares next to corners last).
+ *
+ * <p>Killers and history are learned during a search, so every thread needs its own MoveOrder.
+ *
+ * <p>How well the ordering works shows in Search.cutoffRate, the share of cutoffs caused by the
+ * first move tried.
+ */
+public class MoveOrder {
+  // Plies are counted in discs placed since the root, a game never has more
+  static final int MAX_PLY = Board.SQUARES;
+
+  // Ordering values of the table move and killers, above anything the history can reach
+  static final int TABLE_MOVE = 1 << 30;
+  static final int KILLER = 1 << 29;
+
+  // History values are halved once any of them grows past this
+  static final int HISTORY_LIMIT = 1 << 24;
+
+  // Value of each square from the point table, scaled so history outweighs it once it has learned
+  final int priors[] = new int[Board.SQUARES];
+
+  // Two killer moves for each ply, -1 when there is none
+  final int killers[][] = new int[MAX_PLY][2];
+
+  // Cutoffs caused by each move for each color, weighted by the depth they were found at
+  final int history[][] = new int[3][Board.SQUARES];
+
+  // Move lists and their ordering values for each ply, so ordering allocates nothing
+  final int lists[][] = new int[MAX_PLY + 1][Board.SQUARES];
+  final int values[][] = new int[MAX_PLY + 1][Board.SQUARES];
+
+  /**
+   * Creates a move order
+   *
+   * @param pointTable a Game sized table of square values, such as White.pointTable
+   */
+  public MoveOrder(int[][] pointTable) {
+    int lowest = Integer.MAX_VALUE;
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      lowest = Math.min(lowest, pointTable[Board.row(sq)][Board.column(sq)]);
+    }
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      priors[sq] = pointTable[Board.row(sq)][Board.column(sq)] - lowest;
+    }
+    newSearch();
+  }
+
+  /**
+   * Creates a move order with the same priors as another, but nothing learned yet
+   *
+   * @param another the move order to be copied
+   */
+  public MoveOrder(MoveOrder another) {
+    System.arraycopy(another.priors, 0, priors, 0, Board.SQUARES);
+    newSearch();
+  }
+
+  /** Forgets the killers and ages the history before a new search */
+  public void newSearch() {
+    for (int ply = 0; ply < MAX_PLY; ply++) {
+      killers[ply][0] = killers[ply][1] = -1;
+    }
+    for (int color = 0; color < history.length; color++) {
+      for (int sq = 0; sq < Board.SQUARES; sq++) {
+        history[color][sq] >>= 1;
+      }
+    }
+  }
+
+  /**
+   * Puts moves in the order they should be tried
+   *
+   * @param moves the legal moves
+   * @param tableMove the best move stored in the transposition table, -1 if there is none
+   * @param color the player to move
+   * @param ply the number of discs placed since the root
+   * @return the moves in order, the first count entries of lists[ply]
+   */
+  public int order(long moves, int tableMove, int color, int ply) {
+    int list[] = lists[ply];
+    int value[] = values[ply];
+    int killer[] = killers[Math.min(ply, MAX_PLY - 1)];
+    int count = 0;
+
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+
+      int v;
+      if (sq == tableMove) {
+        v = TABLE_MOVE;
+      } else if (sq == killer[0]) {
+        v = KILLER + 1;
+      } else if (sq == killer[1]) {
+        v = KILLER;
+      } else {
+        v = history[color][sq] * 16 + priors[sq];
+      }
+
+      // Insertion sort, highest value first, there are rarely more than a dozen moves
+      int i = count++;
+      while (i > 0 && value[i - 1] < v) {
+        value[i] = value[i - 1];
+        list[i] = list[i - 1];
+        i--;
+      }
+      value[i] = v;
+      list[i] = sq;
+    }
+    return count;
+  }
+
+  /**
+   * Learns from a move that caused a cutoff
+   *
+   * @param sq the bit index of the move
+   * @param color the player who made it
+   * @param ply the number of discs placed since the root
+   * @param depth the depth left when it was made
+   */
+  public void cutoff(int sq, int color, int ply, int depth) {
+    int killer[] = killers[Math.min(ply, MAX_PLY - 1)];
+    if (killer[0] != sq) {
+      killer[1] = killer[0];
+      killer[0] = sq;
+    }
+
+    history[color][sq] += depth * depth;
+    if (history[color][sq] > HISTORY_LIMIT) {
+      for (int c = 0; c < history.length; c++) {
+        for (int s = 0; s < Board.SQUARES; s++) {
+          history[c][s] >>= 1;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Scored moves for the positions of the opening, read from a binary file so that the first moves
+ * of a game need no search at all.
+ *
+ * <p>The file is a header followed by fixed size entries sorted by position key, each holding the
+ * key, a move and its score, with the moves of one position best first. It is memory-mapped rather
+ * than read, so opening a book costs nothing however large it is, the entries never take up heap,
+ * and a lookup is a binary search touching a handful of pages. Books are read-only once built and
+ * may be shared by any number of threads.
+ *
+ * <p>Positions are stored in their canonical orientation (see Symmetry) with moves moved to match,
+ * so the up to 8 positions symmetric to each other take one set of entries and are searched once
+ * when the book is built. In the opening, where symmetric positions are common, that makes the
+ * book several times smaller for the same number of plies.
+ */
+public class OpeningBook {
+  static final int MAGIC = 0x4f424b32; // "OBK2", keyed by canonical position
+  static final int HEADER_BYTES = 8; // Magic and number of entries
+  static final int ENTRY_BYTES = 16; // Key, move and score
+
+  final MappedByteBuffer entries;
+  final int size;
+
+  /**
+   * Opens a book
+   *
+   * @param file the book file written by build
+   * @throws IOException if the file cannot be read or is not a book
+   */
+  public OpeningBook(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+        throw new IOException(file + " is not an opening book");
+      }
+      entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+
+    size = entries.getInt(4);
+    if (entries.getInt(0) != MAGIC
+        || size < 0
+        || HEADER_BYTES + (long) size * ENTRY_BYTES != entries.capacity()) {
+      throw new IOException(file + " is not an opening book");
+    }
+  }
+
+  /**
+   * Finds the best book move of a position
+   *
+   * @param position the position to look up
+   * @param color the player to move
+   * @return the bit index of the best move, -1 if the position is not in the book
+   */
+  public int lookup(Board position, int color) {
+    int symmetry = symmetry(position);
+    long key = key(position, color, symmetry);
+    long legal = position.legalMoves(color);
+    int back = Symmetry.inverse(symmetry);
+
+    // Every move stored for a different position that happens to share the key is most likely
+    // illegal here, so only legal moves are taken
+    for (int i = first(key); i < size && key(i) == key; i++) {
+      int move = entries.getInt(offset(i) + 8);
+      if (move >= 0 && move < Board.SQUARES) {
+        move = Symmetry.square(back, move);
+        if ((legal & (1L << move)) != 0) {
+          return move;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /** @return the symmetry that turns a position into its canonical orientation */
+  static int symmetry(Board position) {
+    return Symmetry.canonical(position.discs(Game.BLACK), position.discs(Game.WHITE));
+  }
+
+  /**
+   * @param position a position
+   * @param color the player to move
+   * @param symmetry the symmetry that makes the position canonical
+   * @return the key of the canonical position
+   */
+  static long key(Board position, int color, int symmetry) {
+    long black = Symmetry.transform(symmetry, position.discs(Game.BLACK));
+    long white = Symmetry.transform(symmetry, position.discs(Game.WHITE));
+    return Zobrist.key(Zobrist.hash(black, white), color);
+  }
+
+  /** @return the number of scored moves in the book */
+  public int size() {
+    return size;
+  }
+
+  /** @return the index of the first entry with a key of at least key */
+  int first(long key) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (key(middle) < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  long key(int index) {
+    return entries.getLong(offset(index));
+  }
+
+  static int offset(int index) {
+    return HEADER_BYTES + index * ENTRY_BYTES;
+  }
+
+  /**
+   * Builds a book by searching every move of every position reachable in the first plies moves
+   *
+   * @param file the file to write the book to
+   * @param search the search to score the moves with
+   * @param plies the number of moves from the start covered by the book
+   * @param depth the depth each move is searched to
+   * @return the number of scored moves written
+   * @throws IOException if the file cannot be written
+   */
+  public static int build(Path file, Search search, int plies, int depth) throws IOException {
+    ArrayList<long[]> scored = new ArrayList<long[]>();
+    collect(Board.start(), Game.BLACK, plies, depth, search, new HashSet<Long>(), scored);
+
+    // By key, then best move first
+    Collections.sort(
+        scored,
+        (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + scored.size() * ENTRY_BYTES);
+    buffer.putInt(MAGIC).putInt(scored.size());
+    for (long entry[] : scored) {
+      buffer.putLong(entry[0]).putInt((int) entry[1]).putInt((int) entry[2]);
+    }
+    buffer.flip();
+
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+    return scored.size();
+  }
+
+  /**
+   * Scores the moves of a position and of the positions after them
+   *
+   * @param board the position, left unchanged
+   * @param color the player to move
+   * @param plies the number of moves still to be covered
+   * @param depth the depth each move is searched to
+   * @param search the search to score the moves with
+   * @param seen keys of the positions already scored, since many move orders transpose and many
+   *     positions are symmetric to one already scored
+   * @param scored receives a key, move and score for each move
+   */
+  static void collect(
+      Board board,
+      int color,
+      int plies,
+      int depth,
+      Search search,
+      HashSet<Long> seen,
+      ArrayList<long[]> scored) {
+    int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    long moves = board.legalMoves(color);
+    if (plies <= 0) {
+      return;
+    }
+    if (moves == 0) {
+      if (board.legalMoves(other) != 0) {
+        collect(board, other, plies, depth, search, seen, scored);
+      }
+      return;
+    }
+
+    int symmetry = symmetry(board);
+    long key = key(board, color, symmetry);
+    if (!seen.add(key)) {
+      return;
+    }
+
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+
+      long flipped = board.play(color, sq);
+      search.start(new Board(board), Long.MAX_VALUE);
+      int score = -search.negamax(other, depth - 1, -Search.INFINITE, Search.INFINITE);
+      scored.add(new long[] {key, Symmetry.square(symmetry, sq), score});
+      collect(board, other, plies - 1, depth, search, seen, scored);
+      board.undo(color, sq, flipped);
+    }
+  }
+}
@@ -1,6 +1,14 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 
 public class Othello extends JPanel {
@@ -10,16 +18,56 @@ public class Othello extends JPanel {
   static final int OFFBOARD = -1;
 
   Black black = new Black(); // The players
-  White white = new White();
+  White white = new White(tableMB);
 
   private Game game = new Game(); // Game state
   private javax.swing.Timer timer;
   private static int delay;
-  private static long startTime, stopTime, runTime = 0;
+  private static long moveMillis = 0; // Time White may think per move, 0 for a fixed depth
+  private static int threads = 1; // Number of threads White searches with
+  private static int output = Tournament.SUMMARY; // How much a headless run prints
+  static final String BOOK_FILE = "othello.book"; // Opening book used by White when it exists
+  private static OpeningBook book = null;
+  static final String WEIGHTS_FILE = "othello.weights"; // Pattern weights used by White if present
+  private static Evaluator evaluator = null;
+  static final String PROBCUT_FILE = "othello.probcut"; // ProbCut calibration of that evaluator
+  private static ProbCut probCut = null;
+  private static int selectivity = Integer.getInteger("selectivity", 0); // -Dselectivity=0..4
+  // Transposition table of each White in megabytes, -DtableMB=1..1024
+  private static int tableMB = Integer.getInteger("tableMB", White.TABLESIZE);
+  private static String recordFile = null; // Game archive a headless run appends to, if any
   private int turn = BLACK;
   private boolean black_done = false;
   private boolean white_done = false;
 
+  // White thinks on its own thread so the GUI never waits for it. Every use of white goes through
+  // this executor, and a result is only applied if no new game was started since it was asked for.
+  private final ExecutorService engine =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "engine");
+            t.setDaemon(true);
+            return t;
+          });
+  private boolean human = false; // True when a human plays Black with the mouse
+  private int generation = 0;
+  private AtomicBoolean request = new AtomicBoolean(); // Set when White's move is abandoned
+  private boolean thinking = false;
+  private long thinkingSince = 0;
+
+  // Drawing kept between repaints: the discs and legal move hints of each color as images, and the
+  // whole board for the position on show with its status line
+  private BufferedImage discs[];
+  private BufferedImage hints[];
+  private BufferedImage boardImage;
+  private Game paintedGame;
+  private int paintedVersion;
+  private int paintedTurn;
+  private String status = "";
+
+  // Repaints 60 times a second while White thinks, to show that the GUI is alive
+  private final javax.swing.Timer frames = new javax.swing.Timer(1000 / 60, e -> repaint());
+
   /**
    * This constructor sets up the initial game configuration, and starts the timer with a default
    * delay of 1 second.
@@ -36,6 +84,12 @@ public class Othello extends JPanel {
    */
   public Othello(int delay) {
 
+    if (moveMillis > 0) white.setTimePerMove(moveMillis);
+    if (threads > 1) white.setThreads(threads);
+    white.setBook(book);
+    if (evaluator != null) white.setEvaluator(evaluator);
+    if (probCut != null) white.setProbCut(probCut, selectivity);
+
     // Initialize the game state
     initGame(game);
 
@@ -47,8 +101,11 @@ public class Othello extends JPanel {
               delay,
               new ActionListener() {
                 public void actionPerformed(ActionEvent e) {
-                  playerMove();
-                  repaint();
+                  // Wait for White instead of queueing moves behind it
+                  if (!thinking) {
+                    playerMove();
+                    repaint();
+                  }
                 }
               });
 
@@ -72,11 +129,14 @@ public class Othello extends JPanel {
               timer.stop();
             }
           });
+
+      addNewGameButton();
     }
 
     // Run the game with GUI - human vs. computer.
     // The human player always plays with the black discs.
     if (delay == 0) {
+      human = true;
       setBackground(Color.GREEN);
       addMouseListener(
           new MouseAdapter() {
@@ -89,102 +149,44 @@ public class Othello extends JPanel {
               int column = (x * (game.WIDTH - 2)) / screenWidth + 1;
               int row = (y * (game.HEIGHT - 2)) / screenHeight + 1;
 
-              if (!game.legalMove(row, column, BLACK, true))
+              if (turn != BLACK) System.out.println("Wait for White to move!");
+              else if (game.play(row, column, BLACK) == 0)
                 System.out.println("Not a legal move - try again!");
               else {
-                game.board[row][column] = BLACK;
                 repaint();
-                black_done = true;
-                for (int i = 1; i < game.HEIGHT - 1; i++)
-                  for (int j = 1; j < game.WIDTH - 1; j++)
-                    if (game.legalMove(i, j, BLACK, false)) black_done = false;
+                black_done = !game.canMove(BLACK);
+                turn = WHITE;
                 whiteMove();
               }
             }
           });
+
+      addNewGameButton();
     }
 
     // Run the game without the GUI - as many times as specified in delay.
+    // The games are shared out between workers, with a processor for every search thread.
     if (delay < 0) {
-
-      // Start timing how long it takes to play "delay" games
-      startTime = new Date().getTime();
-
-      // Keep track of how many wins each color has
-      int white_won = 0;
-      int black_won = 0;
-      int ties = 0;
-
-      // Play a bunch of games!
-      for (int times = 0; times < -delay; times++) {
-        initGame(game);
-        boolean done = false;
-        white_done = false;
-        black_done = false;
-
-        while (!done) {
-          playerMove();
-          StringBuilder sb = new StringBuilder("____________________________________\n");
-
-          int bC = 0;
-          int wC = 0;
-
-          for (int i = 1; i < game.HEIGHT - 1; i++) {
-            sb.append("\n");
-            for (int j = 1; j < game.WIDTH - 1; j++) {
-              if (game.board[i][j] == BLACK) {
-                sb.append("X\t");
-                bC++;
-              } else if (game.board[i][j] == WHITE) {
-                sb.append("O\t");
-                wC++;
-              } else {
-                sb.append("-\t");
-              }
-            }
-          }
-          sb.append("\n____________________________________\n");
-          System.out.println(sb.toString());
-
-          // Check if there are any more moves to make
-          done = true;
-          for (int i = 1; i < game.HEIGHT - 1; i++)
-            for (int j = 1; j < game.WIDTH - 1; j++)
-              if ((game.legalMove(i, j, BLACK, false)) || (game.legalMove(i, j, WHITE, false)))
-                done = false;
-
-          if (done)
-            if (wC > bC) {
-              System.out.println(
-                  "\n____________________________________\n<<<<White>>>> won with "
-                      + wC
-                      + "\n____________________________________\n");
-              white_won++;
-            } else if (bC > wC) {
-              System.out.println(
-                  "\n____________________________________\n<<<<Black>>>> won with "
-                      + bC
-                      + "\n____________________________________\n");
-              black_won++;
-            } else {
-              // System.out.println("Tied game");
-              ties++;
-            }
+      int processors = Runtime.getRuntime().availableProcessors();
+      Tournament tournament =
+          new Tournament(-delay, Tournament.workers(processors, threads), moveMillis, threads);
+      tournament.output = output;
+      tournament.tableSizeMB = tableMB;
+      tournament.book = book;
+      tournament.evaluator = evaluator;
+      tournament.probCut = probCut;
+      tournament.selectivity = selectivity;
+      if (recordFile == null) {
+        tournament.run();
+      } else {
+        try (GameRecordWriter records = new GameRecordWriter(Paths.get(recordFile))) {
+          tournament.records = records;
+          tournament.run();
+        } catch (IOException e) {
+          System.out.println("Could not record the games: " + e.getMessage());
         }
       }
-
-      stopTime = new Date().getTime();
-      runTime = (stopTime - startTime);
-
-      System.out.println("===========================");
-      System.out.println("Total number of games = " + -delay);
-      System.out.println("White won " + white_won + " times");
-      System.out.println("Black won " + black_won + " times");
-      System.out.println("Number of tied games = " + ties);
-      System.out.println("\nWhite lost " + (-delay - white_won) + " times");
-      System.out.print("Runtime for " + -delay + " games = ");
-      System.out.println(runTime + " milliseconds");
-      System.out.println("===========================");
+      tournament.printSummary();
     }
   }
 
@@ -196,24 +198,45 @@ public class Othello extends JPanel {
   public void initGame(Game game) {
 
     turn = BLACK;
+    engine.execute(white::newGame);
     // System.out.println("Turn is: " + turn);
 
-    // Initialize off-board squares
-    for (int i = 0; i < game.WIDTH; i++) {
-      game.board[i][0] = OFFBOARD;
-      game.board[i][game.WIDTH - 1] = OFFBOARD;
-      game.board[0][i] = OFFBOARD;
-      game.board[game.HEIGHT - 1][i] = OFFBOARD;
-    }
+    // Off-board squares, an empty board and the initial setup, along with the disc counts
+    game.setBoard(Board.start());
+  }
 
-    // Initialize game board to be empty except for initial setup
-    for (int i = 1; i < game.HEIGHT - 1; i++)
-      for (int j = 1; j < game.WIDTH - 1; j++) game.board[i][j] = EMPTY;
+  /** Adds a button that abandons the game being played and starts a new one */
+  private void addNewGameButton() {
+    JButton newGame = new JButton("New Game");
+    add(newGame);
+    newGame.addActionListener(
+        new ActionListener() {
+          public void actionPerformed(ActionEvent evt) {
+            cancel();
+            initGame(game);
+            repaint();
+          }
+        });
+  }
 
-    game.board[game.HEIGHT / 2 - 1][game.WIDTH / 2 - 1] = WHITE;
-    game.board[game.HEIGHT / 2][game.WIDTH / 2 - 1] = BLACK;
-    game.board[game.HEIGHT / 2 - 1][game.WIDTH / 2] = BLACK;
-    game.board[game.HEIGHT / 2][game.WIDTH / 2] = WHITE;
+  /** Abandons the move White is thinking about, its result will be ignored */
+  public void cancel() {
+    generation++;
+    request.set(true);
+    if (thinking) {
+      white.stop();
+      thinking = false;
+      frames.stop();
+    }
+  }
+
+  /** Cancels White's move and stops the engine thread, for when the window closes */
+  public void shutdown() {
+    cancel();
+    if (timer != null) {
+      timer.stop();
+    }
+    engine.shutdown();
   }
 
   /**
@@ -227,7 +250,6 @@ public class Othello extends JPanel {
       turn = WHITE;
     } else {
       whiteMove();
-      turn = BLACK;
     }
   }
 
@@ -235,24 +257,59 @@ public class Othello extends JPanel {
   public void blackMove() {
 
     // Check if Black can move anywhere
-    black_done = true;
-    for (int i = 1; i < game.HEIGHT - 1; i++)
-      for (int j = 1; j < game.WIDTH - 1; j++)
-        if (game.legalMove(i, j, BLACK, false)) black_done = false;
+    black_done = !game.canMove(BLACK);
 
     game = black.strategy(game, black_done, BLACK);
   }
 
-  /** White takes a turn. */
+  /**
+   * White takes a turn. White thinks on the engine thread about a copy of the game, and its move is
+   * applied on the event dispatch thread once it is ready, after which it is Black's turn.
+   */
   public void whiteMove() {
 
     // Check if White can move
-    white_done = true;
-    for (int i = 1; i < game.HEIGHT - 1; i++)
-      for (int j = 1; j < game.WIDTH - 1; j++)
-        if (game.legalMove(i, j, WHITE, false)) white_done = false;
+    white_done = !game.canMove(WHITE);
+
+    Game position = new Game(game);
+    boolean done = white_done;
+    int asked = generation;
+    AtomicBoolean cancelled = new AtomicBoolean();
+    request = cancelled;
+    thinking = true;
+    thinkingSince = System.currentTimeMillis();
+    frames.start();
+
+    engine.execute(
+        () -> {
+          // Cancelled before or while White thinks, the searches return at once
+          white.setCancel(cancelled);
+          Game result = white.strategy(position, done, WHITE);
+          SwingUtilities.invokeLater(() -> whiteMoved(result, asked));
+        });
+  }
 
-    game = white.strategy(game, white_done, WHITE);
+  /**
+   * Applies White's move, unless the game it was computed for has been abandoned
+   *
+   * @param result the game after White's move
+   * @param asked the generation of the game White was asked about
+   */
+  private void whiteMoved(Game result, int asked) {
+    if (asked != generation) {
+      return;
+    }
+    thinking = false;
+    frames.stop();
+    game = result;
+    turn = BLACK;
+    repaint();
+
+    // The human has to pass, White moves again
+    if (human && !game.canMove(BLACK) && game.canMove(WHITE)) {
+      turn = WHITE;
+      whiteMove();
+    }
   }
 
   /**
@@ -266,12 +323,52 @@ public class Othello extends JPanel {
 
     int width = getWidth();
     int height = getHeight();
+
+    // Only draw the board again when the position, the player to move or the size has changed
+    if (boardImage == null
+        || paintedGame != game
+        || paintedVersion != game.version
+        || paintedTurn != turn
+        || boardImage.getWidth() != width
+        || boardImage.getHeight() != height) {
+      drawBoard(width, height);
+    }
+    g.drawImage(boardImage, 0, 0, null);
+
+    g.setColor(Color.RED);
+    if (thinking) {
+      long dots = (System.currentTimeMillis() - thinkingSince) / 250 % 4;
+      g.drawString("White is thinking" + "...".substring(0, (int) dots), 10, 40);
+    }
+    g.drawString(status, 10, 20);
+  }
+
+  /**
+   * Draws the lines, discs and legal moves of the current position into the board image, and
+   * works out the status line
+   *
+   * @param width the width of the panel
+   * @param height the height of the panel
+   */
+  private void drawBoard(int width, int height) {
+    if (discs == null) {
+      discs = new BufferedImage[] {null, sprite(Color.BLACK, 50), sprite(Color.WHITE, 50)};
+      hints = new BufferedImage[] {null, sprite(Color.BLACK, 6), sprite(Color.WHITE, 6)};
+    }
+    if (boardImage == null
+        || boardImage.getWidth() != width
+        || boardImage.getHeight() != height) {
+      boardImage =
+          new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_RGB);
+    }
+
+    Graphics g = boardImage.getGraphics();
+    g.setColor(getBackground());
+    g.fillRect(0, 0, width, height);
+
     int xoff = width / (game.WIDTH - 2);
     int yoff = height / (game.HEIGHT - 2);
 
-    int bCount = 0;
-    int wCount = 0;
-
     // Draw the lines on the board
     g.setColor(Color.BLACK);
     for (int i = 1; i <= game.HEIGHT - 2; i++) {
@@ -279,49 +376,57 @@ public class Othello extends JPanel {
       g.drawLine(0, i * yoff, width, i * yoff);
     }
 
+    // Show the legal moves for the current player only
+    long hintMoves = game.legalMoves(turn);
+
     // Draw discs on the board and show the legal moves
     for (int i = 1; i < game.HEIGHT - 1; i++) {
       for (int j = 1; j < game.WIDTH - 1; j++) {
-        // Draw the discs
-        if (game.board[i][j] == BLACK) {
-          g.setColor(Color.BLACK);
-          g.fillOval((j * yoff) - yoff + 7, (i * xoff) - xoff + 7, 50, 50);
-          bCount++;
-        } else if (game.board[i][j] == WHITE) {
-          g.setColor(Color.WHITE);
-          g.fillOval((j * yoff) - yoff + 7, (i * xoff) - xoff + 7, 50, 50);
-          wCount++;
+        int disc = game.board[i][j];
+        if (disc == BLACK || disc == WHITE) {
+          g.drawImage(discs[disc], (j * yoff) - yoff + 7, (i * xoff) - xoff + 7, null);
         }
-        // Show the legal moves for the current player
-        if (turn == BLACK && game.legalMove(i, j, BLACK, false)) {
-          g.setColor(Color.BLACK);
-          g.fillOval((j * yoff + 29) - yoff, (i * xoff + 29) - xoff, 6, 6);
-        }
-        // If other player cannot move, current player cleans up
-        if (turn == WHITE && game.legalMove(i, j, WHITE, false)) {
-          g.setColor(Color.WHITE);
-          g.fillOval((j * yoff + 29) - yoff, (i * xoff + 29) - xoff, 6, 6);
+        if ((hintMoves & (1L << Board.square(i, j))) != 0) {
+          g.drawImage(hints[turn], (j * yoff + 29) - yoff, (i * xoff + 29) - xoff, null);
         }
       }
     }
+    g.dispose();
 
     // Check if there are any more moves to make
-    boolean done = true;
-    for (int i = 1; i < game.HEIGHT - 1; i++)
-      for (int j = 1; j < game.WIDTH - 1; j++)
-        if ((game.legalMove(i, j, BLACK, false)) || (game.legalMove(i, j, WHITE, false)))
-          done = false;
+    boolean done = game.gameOver();
+    int bCount = game.count(BLACK);
+    int wCount = game.count(WHITE);
 
-    g.setColor(Color.RED);
     if (done) {
-      if (wCount > bCount) g.drawString("White won with " + wCount + " discs.", 10, 20);
-      else if (bCount > wCount) g.drawString("Black won with " + bCount + " discs.", 10, 20);
-      else g.drawString("Tied game", 10, 20);
+      if (wCount > bCount) status = "White won with " + wCount + " discs.";
+      else if (bCount > wCount) status = "Black won with " + bCount + " discs.";
+      else status = "Tied game";
     } else {
-      if (wCount > bCount) g.drawString("White is winning with " + wCount + " discs", 10, 20);
-      else if (bCount > wCount) g.drawString("Black is winning with " + bCount + " discs", 10, 20);
-      else g.drawString("Currently tied", 10, 20);
+      if (wCount > bCount) status = "White is winning with " + wCount + " discs";
+      else if (bCount > wCount) status = "Black is winning with " + bCount + " discs";
+      else status = "Currently tied";
     }
+
+    paintedGame = game;
+    paintedVersion = game.version;
+    paintedTurn = turn;
+  }
+
+  /**
+   * Draws a disc once so it can be copied onto the board
+   *
+   * @param color the color of the disc
+   * @param size the diameter of the disc in pixels
+   * @return an image of the disc on a transparent background
+   */
+  private static BufferedImage sprite(Color color, int size) {
+    BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    Graphics g = image.getGraphics();
+    g.setColor(color);
+    g.fillOval(0, 0, size, size);
+    g.dispose();
+    return image;
   }
 
   /**
@@ -333,16 +438,237 @@ public class Othello extends JPanel {
 
     Othello content;
 
-    if (args.length > 1) {
-      System.out.println("Usage: java Othello delayTime");
+    // Count the leaves of the game tree: perft depth [threads [hashMB [position]]]
+    if (args.length > 0 && args[0].equals("perft")) {
+      int depth;
+      int perftThreads;
+      int hashMB;
+      try {
+        depth = Integer.parseInt(args[1]);
+        perftThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        hashMB = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        System.out.println("Usage: java Othello perft depth [threads [hashMB [position]]]");
+        System.exit(0);
+        return;
+      }
+      if (hashMB < 0 || hashMB > TranspositionTable.MAX_MB) {
+        System.out.println("hashMB must be from 0 to " + TranspositionTable.MAX_MB);
+        System.exit(0);
+      }
+      try {
+        Perft.run(depth, perftThreads, hashMB, args.length > 4 ? args[4] : null);
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage());
+        System.out.println(
+            "A position is 64 squares (X, O or -) row by row, then X or O for the player to move");
+      }
       System.exit(0);
     }
 
-    if (args.length == 1) {
+    // Build the opening book: book [plies [depth]]
+    if (args.length > 0 && args[0].equals("book")) {
+      try {
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        long begin = System.currentTimeMillis();
+        Search search =
+            White.newSearch(White.defaultEvaluator(), new TranspositionTable(White.TABLESIZE));
+        int entries = OpeningBook.build(Paths.get(BOOK_FILE), search, plies, depth);
+        System.out.println(
+            "Wrote "
+                + entries
+                + " moves to "
+                + BOOK_FILE
+                + " in "
+                + (System.currentTimeMillis() - begin)
+                + " milliseconds");
+      } catch (NumberFormatException e) {
+        System.out.println("Usage: java Othello book [plies [depth]]");
+      } catch (IOException e) {
+        System.out.println("Could not write " + BOOK_FILE + ": " + e.getMessage());
+      }
+      System.exit(0);
+    }
+
+    if (Files.exists(Paths.get(BOOK_FILE))) {
+      try {
+        book = new OpeningBook(Paths.get(BOOK_FILE));
+      } catch (IOException e) {
+        System.out.println("Playing without a book: " + e.getMessage());
+      }
+    }
+
+    if (Files.exists(Paths.get(WEIGHTS_FILE))) {
+      try {
+        evaluator = new PatternEvaluator(Paths.get(WEIGHTS_FILE), (int) White.ENDWEIGHT);
+      } catch (IOException e) {
+        System.out.println("Playing without pattern weights: " + e.getMessage());
+      }
+    }
+
+    // Fit pattern weights by self-play, playing with the current weights if there are any:
+    // train [games [threads [iterations]]]
+    if (args.length > 0 && args[0].equals("train")) {
+      try {
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int trainThreads =
+            args.length > 2
+                ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        Evaluator playing = evaluator != null ? evaluator : White.defaultEvaluator();
+        new Trainer(playing, (int) White.ENDWEIGHT, trainThreads, PatternEvaluator.PHASES, 0)
+            .train(Paths.get(WEIGHTS_FILE), games, iterations);
+        System.out.println("Wrote " + WEIGHTS_FILE);
+      } catch (NumberFormatException e) {
+        System.out.println("Usage: java Othello train [games [threads [iterations]]]");
+      } catch (IOException e) {
+        System.out.println("Could not write " + WEIGHTS_FILE + ": " + e.getMessage());
+      }
+      System.exit(0);
+    }
+
+    // Calibrate ProbCut for the evaluator White plays with: probcut [positions [depth [threads]]]
+    if (args.length > 0 && args[0].equals("probcut")) {
+      try {
+        int positions = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int calibrateThreads =
+            args.length > 3
+                ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+        long begin = System.currentTimeMillis();
+        ProbCut calibration =
+            ProbCut.calibrate(
+                evaluator != null ? evaluator : White.defaultEvaluator(),
+                (int) White.ENDWEIGHT,
+                positions,
+                depth,
+                calibrateThreads,
+                0);
+        calibration.print();
+        calibration.save(Paths.get(PROBCUT_FILE));
+        System.out.println(
+            "Wrote "
+                + PROBCUT_FILE
+                + " in "
+                + (System.currentTimeMillis() - begin)
+                + " milliseconds");
+      } catch (NumberFormatException e) {
+        System.out.println("Usage: java Othello probcut [positions [depth [threads]]]");
+      } catch (IOException e) {
+        System.out.println("Could not write " + PROBCUT_FILE + ": " + e.getMessage());
+      }
+      System.exit(0);
+    }
+
+    if (Files.exists(Paths.get(PROBCUT_FILE))) {
+      try {
+        probCut = new ProbCut(Paths.get(PROBCUT_FILE));
+      } catch (IOException e) {
+        System.out.println("Playing without ProbCut: " + e.getMessage());
+      }
+    }
+
+    // Score the moves of recorded games with a deeper search: analyze file [depth [threads]]
+    if (args.length > 0 && args[0].equals("analyze")) {
+      Path file;
+      int depth;
+      int analyzeThreads;
+      try {
+        file = Paths.get(args[1]);
+        depth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        analyzeThreads =
+            args.length > 3
+                ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        System.out.println("Usage: java Othello analyze file [depth [threads]]");
+        System.exit(0);
+        return;
+      }
+      try {
+        Analyzer analyzer =
+            new Analyzer(
+                new GameArchive(file),
+                evaluator != null ? evaluator : White.defaultEvaluator(),
+                (int) White.ENDWEIGHT,
+                depth,
+                analyzeThreads);
+        Path output = file.resolveSibling(file.getFileName() + ".analysis");
+        analyzer.analyze(output);
+        analyzer.printSummary();
+        System.out.println("Wrote " + output);
+      } catch (IOException e) {
+        System.out.println("Could not analyze the games: " + e.getMessage());
+      }
+      System.exit(0);
+    }
+
+    // Print recorded games: games file [game]
+    if (args.length > 0 && args[0].equals("games")) {
+      Path file;
+      int game;
+      try {
+        file = Paths.get(args[1]);
+        game = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        System.out.println("Usage: java Othello games file [game]");
+        System.exit(0);
+        return;
+      }
+      try {
+        GameArchive archive = new GameArchive(file);
+        if (args.length <= 2) {
+          for (GameRecord record : archive) {
+            record.check();
+            System.out.println(record);
+          }
+        } else if (game >= 0 && game < archive.size()) {
+          GameRecord record = archive.get(game);
+          record.check();
+          System.out.println(record);
+        } else {
+          System.out.println("No game " + game + ", the archive has " + archive.size() + " games");
+        }
+      } catch (IOException e) {
+        System.out.println("Could not read the games: " + e.getMessage());
+      }
+      System.exit(0);
+    }
+
+    if (args.length > 5) {
+      System.out.println(
+          "Usage: java Othello delayTime [whiteMoveMillis [whiteThreads"
+              + " [silent|summary|games|boards [recordFile]]]]");
+      System.exit(0);
+    }
+
+    if (args.length == 5) {
+      recordFile = args[4];
+    }
+
+    if (args.length >= 4) {
+      output = Tournament.level(args[3]);
+      if (output < 0) {
+        System.out.println("Output must be one of silent, summary, games or boards");
+        System.exit(0);
+      }
+    }
+
+    if (tableMB < 1 || tableMB > TranspositionTable.MAX_MB) {
+      System.out.println("tableMB must be from 1 to " + TranspositionTable.MAX_MB);
+      System.exit(0);
+    }
+
+    if (args.length >= 1) {
       try {
         delay = Integer.parseInt(args[0]);
+        if (args.length >= 2) moveMillis = Long.parseLong(args[1]);
+        if (args.length >= 3) threads = Integer.parseInt(args[2]);
       } catch (NumberFormatException e) {
-        System.out.println("Command line arg must be an integer");
+        System.out.println("Command line args must be integers");
         System.exit(0);
       }
       content = new Othello(delay);
@@ -352,6 +678,13 @@ public class Othello extends JPanel {
         window.setSize(530, 557);
         window.setLocation(100, 100);
         window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        final Othello othello = content;
+        window.addWindowListener(
+            new WindowAdapter() {
+              public void windowClosing(WindowEvent e) {
+                othello.shutdown();
+              }
+            });
         window.setVisible(true);
       }
     } else {
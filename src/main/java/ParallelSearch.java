@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several Searches on the same position at once, sharing one transposition table (Lazy SMP).
+ * The threads do not split the tree between them; they search it independently and each one skips
+ * subtrees the others have already stored in the table. Helper threads start one iteration deeper
+ * every other thread so they fill in the table ahead of the main search. The move returned comes
+ * from the thread that finished the deepest iteration.
+ */
+public class ParallelSearch {
+  // Number of positions of midgame(), which the benchmarks search
+  static final int POSITIONS = 4;
+
+  final Search main;
+  final Search helpers[];
+  final ExecutorService pool;
+
+  // Totals of the last search
+  long nodes = 0;
+  long nanos = 0;
+  int move = -1;
+  int score = 0;
+  int reached = 0;
+  int pv[] = new int[0];
+
+  /**
+   * Creates a parallel search
+   *
+   * @param main the search run on the calling thread, its table is shared with the helpers
+   * @param threads the total number of threads, including the calling thread
+   */
+  public ParallelSearch(Search main, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Thread count must be at least 1");
+    }
+    this.main = main;
+    this.helpers = new Search[threads - 1];
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i] = new Search(main.evaluator, main.endWeight, main.table);
+      helpers[i].helper = true;
+      helpers[i].order = main.order == null ? null : new MoveOrder(main.order);
+      helpers[i].probCut = main.probCut;
+      helpers[i].pvs = main.pvs;
+      helpers[i].firstDepth = 1 + (i + 1) % 2;
+    }
+
+    pool =
+        helpers.length == 0
+            ? null
+            : Executors.newFixedThreadPool(
+                helpers.length,
+                r -> {
+                  Thread t = new Thread(r, "search-helper");
+                  t.setDaemon(true);
+                  return t;
+                });
+  }
+
+  /** @return the total number of threads searching */
+  public int threads() {
+    return helpers.length + 1;
+  }
+
+  /**
+   * Searches a position on every thread until the main thread finishes
+   *
+   * @param position the position to be searched, left unchanged when the search returns
+   * @param color the player to move
+   * @param maxDepth the deepest iteration to run
+   * @param softMillis the time after which no new iteration is started
+   * @param hardMillis the time after which the running iteration is abandoned
+   * @return the bit index of the best move, -1 if color has to pass
+   */
+  public int iterate(Board position, int color, int maxDepth, long softMillis, long hardMillis) {
+    long begin = System.nanoTime();
+
+    // Helpers get their own copy of the board since moves are made on it in place. Each one is
+    // armed here rather than when its thread starts, so stopping it below always takes effect.
+    ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+    for (Search helper : helpers) {
+      helper.probCut = main.probCut;
+      helper.selectivity = main.selectivity;
+      helper.pvs = main.pvs;
+      helper.stopped = false;
+      Board copy = new Board(position);
+      results.add(
+          pool.submit(() -> helper.iterate(copy, color, maxDepth + 1, Long.MAX_VALUE, hardMillis)));
+    }
+
+    int best = main.iterate(position, color, maxDepth, softMillis, hardMillis);
+    nodes = main.nodes;
+    score = main.score;
+    reached = main.reached;
+    pv = main.pv;
+
+    // Stop the helpers and take the move of a helper that got deeper than the main thread
+    for (Search helper : helpers) {
+      helper.stop();
+    }
+    for (int i = 0; i < helpers.length; i++) {
+      int move = join(results.get(i));
+      nodes += helpers[i].nodes;
+      if (helpers[i].reached > reached && move != -1 && helpers[i].reached <= maxDepth) {
+        best = move;
+        score = helpers[i].score;
+        reached = helpers[i].reached;
+        pv = helpers[i].pv;
+      }
+    }
+
+    nanos = System.nanoTime() - begin;
+    move = best;
+    return best;
+  }
+
+  /** @return the best move, score, depth and principal variation of the last search */
+  public SearchResult result() {
+    return new SearchResult(move, score, reached, pv, nodes);
+  }
+
+  /**
+   * Waits for a helper to finish
+   *
+   * @param result the helper's pending move
+   * @return the move, -1 if the helper failed
+   */
+  static int join(Future<Integer> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return -1;
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /** @return the nodes searched per second by all threads in the last search */
+  public long nodesPerSecond() {
+    return nanos == 0 ? 0 : nodes * 1000000000L / nanos;
+  }
+
+  /** Stops all threads of a running search */
+  public void stop() {
+    main.stop();
+    for (Search helper : helpers) {
+      helper.stop();
+    }
+  }
+
+  /** Shuts the helper threads down */
+  public void shutdown() {
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Reaches one of a few different midgame positions by a fixed choice of moves
+   *
+   * @param p the number of the position
+   * @return the position after 16 moves, Black to move
+   */
+  static Board midgame(int p) {
+    Board position = Board.start();
+    int color = Game.BLACK;
+    int list[] = new int[Board.SQUARES];
+    for (int ply = 0; ply < 16; ply++) {
+      int count = Board.moveList(position.legalMoves(color), list);
+      position.play(color, list[(ply * 7 + p * 3) % count]);
+      color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    }
+    return position;
+  }
+}
@@ -0,0 +1,314 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Evaluates a position by looking up the discs on small groups of squares (patterns) in tables of
+ * learned weights, instead of adding up a fixed value for each square.
+ *
+ * <p>The patterns are the edge with its two X-squares, the 3x3 and 2x5 corner regions and the
+ * diagonals of length 4 to 8. Each is used in all the places the symmetries of the board move it
+ * to, sharing one table. The discs on a pattern, read as a base 3 number (empty, player to move,
+ * opponent), index its table, so a position costs one table read per placed pattern, 34 in all.
+ * The game is split into phases by the number of discs, each with its own tables.
+ *
+ * <p>Indices are not built square by square. A pattern is split into a few groups of squares in
+ * different columns (of the board or of its transpose), and multiplying the discs of a group by a
+ * column of ones gathers them into one byte, which a small table turns into the group's part of
+ * the index.
+ *
+ * <p>Weights are 16-bit numbers in 1/UNIT of a disc, read from a binary file: a header with the
+ * number of phases and the size of every pattern, then the tables of each phase.
+ */
+public class PatternEvaluator implements Evaluator {
+  static final int MAGIC = 0x4f505731; // "OPW1"
+
+  // Weights per disc of difference
+  static final int UNIT = 64;
+
+  // Phases used when no weights file says otherwise
+  static final int PHASES = 4;
+
+  // The patterns on the top left of the board, row major bit indices
+  static final int PATTERNS[][] = {
+    {0, 1, 2, 3, 4, 5, 6, 7, 9, 14}, // Edge and X-squares
+    {0, 1, 2, 8, 9, 10, 16, 17, 18}, // 3x3 corner
+    {0, 1, 2, 3, 4, 8, 9, 10, 11, 12}, // 2x5 corner
+    {0, 9, 18, 27, 36, 45, 54, 63}, // Main diagonal
+    {1, 10, 19, 28, 37, 46, 55},
+    {2, 11, 20, 29, 38, 47},
+    {3, 12, 21, 30, 39},
+    {4, 13, 22, 31}
+  };
+
+  // Every placed pattern: its squares and the offset of its table in the weights of a phase
+  static final int INSTANCES[][];
+  static final int OFFSETS[];
+
+  // The groups of each placed pattern are GROUP_START[i] to GROUP_START[i + 1] - 1. A group is a
+  // mask of squares in different columns, of the transposed board if GROUP_TRANSPOSED is set, and
+  // GROUP_INDEX maps the gathered byte of the group to its part of the pattern index.
+  static final int GROUP_START[];
+  static final long GROUP_MASK[];
+  static final boolean GROUP_TRANSPOSED[];
+  static final int GROUP_INDEX[][];
+
+  // Gathers the bits of a mask with one square per column into the top byte
+  static final long COLUMNS = 0x0101010101010101L;
+
+  // Offset of each pattern's table and the number of weights in one phase
+  static final int TABLE_OFFSETS[] = new int[PATTERNS.length];
+  static final int FEATURES;
+
+  static {
+    int total = 0;
+    for (int p = 0; p < PATTERNS.length; p++) {
+      TABLE_OFFSETS[p] = total;
+      total += power(PATTERNS[p].length);
+    }
+    FEATURES = total;
+
+    // Place each pattern under every symmetry, skipping placements that cover the same squares
+    ArrayList<int[]> instances = new ArrayList<int[]>();
+    ArrayList<Integer> offsets = new ArrayList<Integer>();
+    for (int p = 0; p < PATTERNS.length; p++) {
+      ArrayList<Long> covered = new ArrayList<Long>();
+      for (int t = 0; t < Symmetry.TRANSFORMS; t++) {
+        int squares[] = new int[PATTERNS[p].length];
+        long mask = 0;
+        for (int i = 0; i < squares.length; i++) {
+          squares[i] = Symmetry.square(t, PATTERNS[p][i]);
+          mask |= 1L << squares[i];
+        }
+        if (!covered.contains(mask)) {
+          covered.add(mask);
+          instances.add(squares);
+          offsets.add(TABLE_OFFSETS[p]);
+        }
+      }
+    }
+    INSTANCES = instances.toArray(new int[instances.size()][]);
+    OFFSETS = new int[offsets.size()];
+    for (int i = 0; i < OFFSETS.length; i++) {
+      OFFSETS[i] = offsets.get(i);
+    }
+
+    // Split every placed pattern into groups, on whichever of the board or its transpose needs fewer
+    ArrayList<long[]> groups = new ArrayList<long[]>();
+    GROUP_START = new int[INSTANCES.length + 1];
+    for (int i = 0; i < INSTANCES.length; i++) {
+      GROUP_START[i] = groups.size();
+      ArrayList<long[]> straight = split(INSTANCES[i], false);
+      ArrayList<long[]> transposed = split(INSTANCES[i], true);
+      groups.addAll(transposed.size() < straight.size() ? transposed : straight);
+    }
+    GROUP_START[INSTANCES.length] = groups.size();
+
+    GROUP_MASK = new long[groups.size()];
+    GROUP_TRANSPOSED = new boolean[groups.size()];
+    GROUP_INDEX = new int[groups.size()][256];
+    for (int g = 0; g < groups.size(); g++) {
+      long group[] = groups.get(g);
+      GROUP_MASK[g] = group[0];
+      GROUP_TRANSPOSED[g] = group[1] != 0;
+      for (int b = 0; b < 256; b++) {
+        for (int column = 0; column < Board.SIZE; column++) {
+          if ((b & (1 << column)) != 0) {
+            GROUP_INDEX[g][b] += (int) group[2 + column];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits the squares of a placed pattern into groups with one square per column
+   *
+   * @param squares the squares of the pattern, the first one the most significant base 3 digit
+   * @param transposed true to split the squares of the transposed board
+   * @return for each group its mask, 1 if transposed else 0, then the index value of the square in
+   *     each column
+   */
+  static ArrayList<long[]> split(int squares[], boolean transposed) {
+    ArrayList<long[]> groups = new ArrayList<long[]>();
+    int value = power(squares.length);
+    for (int sq : squares) {
+      value /= 3;
+      int square = transposed ? Symmetry.square(4, sq) : sq;
+      int column = square & 7;
+
+      long group[] = null;
+      for (long candidate[] : groups) {
+        if (candidate[2 + column] == 0) {
+          group = candidate;
+          break;
+        }
+      }
+      if (group == null) {
+        group = new long[2 + Board.SIZE];
+        group[1] = transposed ? 1 : 0;
+        groups.add(group);
+      }
+      group[0] |= 1L << square;
+      group[2 + column] = value;
+    }
+    return groups;
+  }
+
+  // Weights of each phase, all the pattern tables one after the other
+  final short weights[][];
+
+  // Score the search gives one disc of difference
+  final int discValue;
+
+  /**
+   * Creates an evaluator with every weight 0, to be trained
+   *
+   * @param phases the number of game phases
+   * @param discValue the score of one disc of difference, as in the search's end of game scores
+   */
+  public PatternEvaluator(int phases, int discValue) {
+    this.weights = new short[phases][FEATURES];
+    this.discValue = discValue;
+  }
+
+  /**
+   * Loads an evaluator from a weights file
+   *
+   * @param file the weights file written by save
+   * @param discValue the score of one disc of difference, as in the search's end of game scores
+   * @throws IOException if the file cannot be read or was written for other patterns
+   */
+  public PatternEvaluator(Path file, int discValue) throws IOException {
+    this.discValue = discValue;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not a weights file");
+      }
+      int phases = in.readInt();
+      int patterns = in.readInt();
+      if (phases < 1 || patterns != PATTERNS.length) {
+        throw new IOException(file + " was written for other patterns");
+      }
+      for (int p = 0; p < patterns; p++) {
+        if (in.readInt() != PATTERNS[p].length) {
+          throw new IOException(file + " was written for other patterns");
+        }
+      }
+
+      weights = new short[phases][FEATURES];
+      for (int phase = 0; phase < phases; phase++) {
+        for (int i = 0; i < FEATURES; i++) {
+          weights[phase][i] = in.readShort();
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the weights to a file
+   *
+   * @param file the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void save(Path file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(weights.length);
+      out.writeInt(PATTERNS.length);
+      for (int pattern[] : PATTERNS) {
+        out.writeInt(pattern.length);
+      }
+      for (short phase[] : weights) {
+        for (short weight : phase) {
+          out.writeShort(weight);
+        }
+      }
+    }
+  }
+
+  @Override
+  public int evaluate(long player, long opponent) {
+    short table[] = weights[phase(player, opponent)];
+    long playerT = Symmetry.transpose(player);
+    long opponentT = Symmetry.transpose(opponent);
+
+    int sum = 0;
+    for (int i = 0; i < INSTANCES.length; i++) {
+      sum += table[OFFSETS[i] + index(i, player, opponent, playerT, opponentT)];
+    }
+    return sum * discValue / UNIT;
+  }
+
+  /**
+   * Lists the table entries a position reads, for training
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @param features receives the index of each entry within the weights of one phase, must hold
+   *     at least INSTANCES.length entries
+   * @return the number of entries written
+   */
+  public static int features(long player, long opponent, int features[]) {
+    long playerT = Symmetry.transpose(player);
+    long opponentT = Symmetry.transpose(opponent);
+    for (int i = 0; i < INSTANCES.length; i++) {
+      features[i] = OFFSETS[i] + index(i, player, opponent, playerT, opponentT);
+    }
+    return INSTANCES.length;
+  }
+
+  /**
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @return the game phase of the position, by the number of discs on the board
+   */
+  public int phase(long player, long opponent) {
+    return phase(player, opponent, weights.length);
+  }
+
+  static int phase(long player, long opponent, int phases) {
+    int discs = Long.bitCount(player | opponent);
+    return Math.min(phases - 1, Math.max(0, (discs - 4) * phases / (Board.SQUARES - 3)));
+  }
+
+  /**
+   * @param instance the number of a placed pattern
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @param playerT the discs of the player to move, transposed
+   * @param opponentT the discs of the other player, transposed
+   * @return the base 3 number the discs on the pattern read as, its first square most significant
+   */
+  static int index(int instance, long player, long opponent, long playerT, long opponentT) {
+    int index = 0;
+    for (int g = GROUP_START[instance]; g < GROUP_START[instance + 1]; g++) {
+      long mask = GROUP_MASK[g];
+      long p = (GROUP_TRANSPOSED[g] ? playerT : player) & mask;
+      long o = (GROUP_TRANSPOSED[g] ? opponentT : opponent) & mask;
+      int values[] = GROUP_INDEX[g];
+      index += values[(int) ((p * COLUMNS) >>> 56)] + 2 * values[(int) ((o * COLUMNS) >>> 56)];
+    }
+    return index;
+  }
+
+  /** @return the number of phases */
+  public int phases() {
+    return weights.length;
+  }
+
+  static int power(int length) {
+    int size = 1;
+    for (int i = 0; i < length; i++) {
+      size *= 3;
+    }
+    return size;
+  }
+}
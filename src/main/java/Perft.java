@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the leaf positions of the game tree to a fixed depth, to check the move generator against
+ * known counts and to time it. A player with no legal move passes, and the pass counts as a move.
+ * A game that ends before the depth is reached counts as one leaf.
+ *
+ * <p>The moves at the root can be shared out between threads, and a hash table can remember the
+ * counts of positions already seen, which saves most of the work at larger depths since Othello has
+ * many transpositions. Counts are stored under the canonical position, see Symmetry, since every
+ * position symmetric to it has the same count.
+ */
+public class Perft {
+  // Positions fewer than this many moves from the leaves are not worth storing
+  static final int MIN_STORED_DEPTH = 3;
+
+  final int threads;
+
+  // Stored counts: key ^ count then count for each entry, null when hashing is off
+  final long table[];
+  final int tableMask;
+
+  /**
+   * Creates a perft counter
+   *
+   * @param threads the number of threads to split the root moves between
+   * @param hashMB the size of the hash table in megabytes, up to TranspositionTable.MAX_MB, 0 to
+   *     count without one
+   */
+  public Perft(int threads, int hashMB) {
+    if (hashMB < 0 || hashMB > TranspositionTable.MAX_MB) {
+      throw new IllegalArgumentException(
+          "Hash table size must be from 0 to " + TranspositionTable.MAX_MB + " MB, not " + hashMB);
+    }
+    this.threads = Math.max(1, threads);
+    if (hashMB > 0) {
+      int entries = Integer.highestOneBit(hashMB << 20 >>> 4);
+      table = new long[entries * 2];
+      tableMask = entries - 1;
+    } else {
+      table = null;
+      tableMask = 0;
+    }
+  }
+
+  /**
+   * Counts the leaves below a position
+   *
+   * @param position the position to count from
+   * @param color the player to move
+   * @param depth the number of moves to look ahead
+   * @return the number of leaves
+   */
+  public long count(Board position, int color, int depth) {
+    if (depth <= 0) {
+      return 1;
+    }
+    if (threads == 1) {
+      return perft(new Board(position), color, depth, false);
+    }
+
+    // Share the root moves out between the threads, each with its own board
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      ArrayList<Future<Long>> results = new ArrayList<Future<Long>>();
+      long moves = position.legalMoves(color);
+      int other = other(color);
+
+      if (moves == 0) {
+        results.add(pool.submit(() -> perft(new Board(position), color, depth, false)));
+      }
+      while (moves != 0) {
+        int sq = Long.numberOfTrailingZeros(moves);
+        moves &= moves - 1;
+        Board child = new Board(position);
+        child.play(color, sq);
+        results.add(pool.submit(() -> perft(child, other, depth - 1, false)));
+      }
+
+      long total = 0;
+      for (Future<Long> result : results) {
+        total += result.get();
+      }
+      return total;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return -1;
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Counts the leaves below the board, making and taking back moves in place
+   *
+   * @param board the position, unchanged when the method returns
+   * @param color the player to move
+   * @param depth the number of moves left
+   * @param passed true if the last move was a pass
+   * @return the number of leaves
+   */
+  long perft(Board board, int color, int depth, boolean passed) {
+    if (depth == 0) {
+      return 1;
+    }
+
+    int other = other(color);
+    long moves = board.legalMoves(color);
+
+    if (moves == 0) {
+      // Two passes in a row end the game
+      if (passed) {
+        return 1;
+      }
+      return depth == 1 ? 1 : perft(board, other, depth - 1, true);
+    }
+
+    // Every move at the last level is a leaf, no need to make them
+    if (depth == 1) {
+      return Long.bitCount(moves);
+    }
+
+    long key = 0;
+    if (table != null && depth >= MIN_STORED_DEPTH) {
+      key = key(board, color) ^ Zobrist.mix(depth);
+      long stored = probe(key);
+      if (stored >= 0) {
+        return stored;
+      }
+    }
+
+    long total = 0;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long flipped = board.play(color, sq);
+      total += perft(board, other, depth - 1, false);
+      board.undo(color, sq, flipped);
+    }
+
+    if (table != null && depth >= MIN_STORED_DEPTH) {
+      store(key, total);
+    }
+    return total;
+  }
+
+  /**
+   * Looks up a stored count. Entries are checked against the key, so an entry half written by
+   * another thread is simply not found.
+   *
+   * @param key the key of the position and depth
+   * @return the count, -1 if it is not stored
+   */
+  long probe(long key) {
+    int i = (int) (Zobrist.mix(key) & tableMask) * 2;
+    long count = table[i + 1];
+    if (count != 0 && (table[i] ^ count) == key) {
+      return count;
+    }
+    return -1;
+  }
+
+  /**
+   * Stores a count, replacing whatever was in its entry
+   *
+   * @param key the key of the position and depth
+   * @param count the count
+   */
+  void store(long key, long count) {
+    int i = (int) (Zobrist.mix(key) & tableMask) * 2;
+    table[i] = key ^ count;
+    table[i + 1] = count;
+  }
+
+  /**
+   * Keys a position by its canonical orientation, so the count of a position is found again for
+   * all 8 positions symmetric to it, which are common in the first moves
+   *
+   * @param board the position
+   * @param color the player to move
+   * @return the key of the position
+   */
+  static long key(Board board, int color) {
+    long black = board.discs(Game.BLACK);
+    long white = board.discs(Game.WHITE);
+    int t = Symmetry.canonical(black, white);
+    black = Symmetry.transform(t, black);
+    white = Symmetry.transform(t, white);
+    long key = Zobrist.mix(black ^ Zobrist.mix(white));
+    return color == Game.WHITE ? key ^ Zobrist.SIDE : key;
+  }
+
+  static int other(int color) {
+    return color == Game.BLACK ? Game.WHITE : Game.BLACK;
+  }
+
+  /**
+   * Reads a position written as 64 squares row by row, X for Black, O for White and - or . for
+   * empty, optionally followed by X or O for the player to move (Black if it is left out)
+   *
+   * @param text the position
+   * @param color receives the player to move in its first element
+   * @return the board
+   */
+  public static Board parse(String text, int color[]) {
+    String squares = text.replaceAll("\\s", "");
+    if (squares.length() != Board.SQUARES && squares.length() != Board.SQUARES + 1) {
+      throw new IllegalArgumentException("A position needs 64 squares and the player to move");
+    }
+
+    long black = 0;
+    long white = 0;
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      char c = Character.toUpperCase(squares.charAt(sq));
+      if (c == 'X' || c == '*') {
+        black |= 1L << sq;
+      } else if (c == 'O') {
+        white |= 1L << sq;
+      } else if (c != '-' && c != '.') {
+        throw new IllegalArgumentException("Unknown square " + c);
+      }
+    }
+
+    color[0] = Game.BLACK;
+    if (squares.length() > Board.SQUARES
+        && Character.toUpperCase(squares.charAt(Board.SQUARES)) == 'O') {
+      color[0] = Game.WHITE;
+    }
+    return new Board(black, white);
+  }
+
+  /**
+   * Runs perft to each depth up to a maximum and prints the counts and their speed
+   *
+   * @param depth the largest depth
+   * @param threads the number of threads
+   * @param hashMB the size of the hash table in megabytes, 0 for none
+   * @param position the position to start from, null for the start position
+   */
+  public static void run(int depth, int threads, int hashMB, String position) {
+    int color[] = {Game.BLACK};
+    Board board = position == null ? Board.start() : parse(position, color);
+
+    for (int d = 1; d <= depth; d++) {
+      // A fresh table for every depth so the times are not helped by the previous run
+      Perft perft = new Perft(threads, hashMB);
+      long begin = System.nanoTime();
+      long leaves = perft.count(board, color[0], d);
+      long nanos = Math.max(1, System.nanoTime() - begin);
+      System.out.printf(
+          "perft(%2d) = %,15d   %8.3f s   %,15.0f nodes/sec%n",
+          d, leaves, nanos / 1e9, leaves * 1e9 / nanos);
+    }
+  }
+}
@@ -0,0 +1,302 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+
+/**
+ * The calibration of Multi-ProbCut, the selective pruning of Search. The score of a deep search
+ * is close to a linear function of the score of a shallow search of the same position, so before
+ * searching a node deeply the search first searches it shallowly with a null window: if the deep
+ * score this predicts is beyond beta (or below alpha) by enough standard deviations of the
+ * prediction error, the node is cut without the deep search.
+ *
+ * <p>For each depth there are up to CHECKS shallow depths, the cheapest tried first, each with the
+ * parity of the deep depth since Othello scores swing between odd and even depths. The slope,
+ * intercept and standard deviation of every pair are fitted separately for each stage of the game
+ * by least squares on scores of self-play positions. A pair that was not calibrated has a standard
+ * deviation of 0 and is never used.
+ *
+ * <p>How many standard deviations are needed is set by the selectivity level of the search, from
+ * 0 (no pruning) to the most selective level: the lower the confidence, the more nodes are cut and
+ * the deeper the search gets in the same time, at the cost of more mistakes.
+ *
+ * <p>Scores are in the units of the evaluator the calibration was made with, so a calibration only
+ * applies to that evaluator.
+ */
+public class ProbCut {
+  static final int MAGIC = 0x4f504331; // "OPC1"
+
+  // Stages of the game, by the number of discs as in PatternEvaluator.phase
+  static final int STAGES = 4;
+
+  // Depths that may be cut, and the number of shallow depths tried for each
+  static final int MIN_DEPTH = 3;
+  static final int MAX_DEPTH = 24;
+  static final int CHECKS = 2;
+
+  // Standard deviations the prediction must clear for each selectivity level, level 0 never cuts
+  static final double CONFIDENCE[] = {Double.POSITIVE_INFINITY, 2.0, 1.5, 1.0, 0.6};
+
+  // Fewest positions a pair is fitted on
+  static final int MIN_SAMPLES = 30;
+
+  // Positions a search scores as won by this many discs or more are left out of the fit: they are
+  // decided, and the few searches that find a wipeout would otherwise skew the whole stage
+  static final int DECIDED = 32;
+
+  // Size of the table each calibration thread clears before every search
+  static final int TABLE_MB = 4;
+
+  // Deep score = slope * shallow score + intercept, with an error of standard deviation sigma,
+  // for each stage, deep depth and check
+  final double slope[][][] = new double[STAGES][MAX_DEPTH + 1][CHECKS];
+  final double intercept[][][] = new double[STAGES][MAX_DEPTH + 1][CHECKS];
+  final double sigma[][][] = new double[STAGES][MAX_DEPTH + 1][CHECKS];
+
+  /** Creates a calibration that never cuts */
+  public ProbCut() {}
+
+  /**
+   * Loads a calibration
+   *
+   * @param file the file written by save
+   * @throws IOException if the file cannot be read or was written with other dimensions
+   */
+  public ProbCut(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC
+          || in.readInt() != STAGES
+          || in.readInt() != MAX_DEPTH
+          || in.readInt() != CHECKS) {
+        throw new IOException(file + " is not a ProbCut calibration");
+      }
+      for (int stage = 0; stage < STAGES; stage++) {
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+          for (int check = 0; check < CHECKS; check++) {
+            slope[stage][depth][check] = in.readDouble();
+            intercept[stage][depth][check] = in.readDouble();
+            sigma[stage][depth][check] = in.readDouble();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the calibration to a file
+   *
+   * @param file the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void save(Path file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(STAGES);
+      out.writeInt(MAX_DEPTH);
+      out.writeInt(CHECKS);
+      for (int stage = 0; stage < STAGES; stage++) {
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+          for (int check = 0; check < CHECKS; check++) {
+            out.writeDouble(slope[stage][depth][check]);
+            out.writeDouble(intercept[stage][depth][check]);
+            out.writeDouble(sigma[stage][depth][check]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @param depth the depth of the deep search
+   * @param check the number of the check, from 0
+   * @return the depth of its shallow search, -1 if the depth has no such check. Check 0 searches
+   *     about a quarter as deep and check 1 about half as deep, both with the parity of depth.
+   */
+  static int shallow(int depth, int check) {
+    if (depth < MIN_DEPTH || depth > MAX_DEPTH) {
+      return -1;
+    }
+    int quarter = depth / 4 + (depth - depth / 4) % 2;
+    if (check == 0) {
+      return quarter;
+    }
+    int half = depth / 2 - (depth - depth / 2) % 2;
+    return half > quarter ? half : -1;
+  }
+
+  /**
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @return the stage of the game
+   */
+  static int stage(long player, long opponent) {
+    return PatternEvaluator.phase(player, opponent, STAGES);
+  }
+
+  /**
+   * Calibrates on positions from self-play games: every position is searched to every depth up to
+   * maxDepth, and the deep scores are fitted against the shallow ones
+   *
+   * @param evaluator the evaluator the calibration is for
+   * @param endWeight the score of each disc of difference in a finished game
+   * @param positions the number of positions, one from each game
+   * @param maxDepth the deepest depth to calibrate
+   * @param threads the number of threads searching positions
+   * @param seed the seed of the self-play games
+   * @return the calibration
+   */
+  public static ProbCut calibrate(
+      Evaluator evaluator, int endWeight, int positions, int maxDepth, int threads, long seed) {
+    int deepest = Math.min(maxDepth, MAX_DEPTH);
+    int values[][] = new int[positions][];
+    int stages[] = new int[positions];
+    AtomicInteger next = new AtomicInteger();
+
+    ArrayList<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+    for (int t = 0; t < Math.max(1, threads); t++) {
+      workers.add(
+          () -> {
+            Search player = new Search(evaluator, endWeight, null);
+            Search search = new Search(evaluator, endWeight, new TranspositionTable(TABLE_MB));
+            search.order = new MoveOrder(White.pointTable);
+            ByteBuffer buffer = ByteBuffer.allocate(Board.SQUARES * Trainer.RECORD_BYTES);
+
+            for (int p = next.getAndIncrement(); p < positions; p = next.getAndIncrement()) {
+              long sample[] = sample(player, new Random(seed + p), buffer, deepest);
+              stages[p] = stage(sample[0], sample[1]);
+              values[p] = scores(search, new Board(sample[0], sample[1]), deepest);
+            }
+            return null;
+          });
+    }
+    run(workers, threads);
+
+    ProbCut probCut = new ProbCut();
+    for (int stage = 0; stage < STAGES; stage++) {
+      for (int depth = MIN_DEPTH; depth <= deepest; depth++) {
+        for (int check = 0; check < CHECKS; check++) {
+          int shallow = shallow(depth, check);
+          if (shallow < 0) {
+            continue;
+          }
+          SimpleRegression regression = new SimpleRegression();
+          for (int p = 0; p < positions; p++) {
+            if (stages[p] == stage && !decided(values[p], endWeight)) {
+              regression.addData(values[p][shallow], values[p][depth]);
+            }
+          }
+          if (regression.getN() >= MIN_SAMPLES && regression.getSlope() > 0) {
+            probCut.slope[stage][depth][check] = regression.getSlope();
+            probCut.intercept[stage][depth][check] = regression.getIntercept();
+            probCut.sigma[stage][depth][check] = Math.sqrt(regression.getMeanSquareError());
+          }
+        }
+      }
+    }
+    return probCut;
+  }
+
+  /** @return true if any of the scores of a position is worth DECIDED discs or more */
+  static boolean decided(int scores[], int endWeight) {
+    for (int score : scores) {
+      if (Math.abs(score) >= DECIDED * endWeight) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Plays a self-play game and picks one of its positions far enough from the end that no search
+   * of the calibration reaches the end of the game
+   *
+   * @return the discs of the player to move and of the other player
+   */
+  static long[] sample(Search player, Random random, ByteBuffer buffer, int depth) {
+    while (true) {
+      buffer.clear();
+      int count = Trainer.game(player, random, buffer);
+      ArrayList<Integer> usable = new ArrayList<Integer>();
+      for (int i = 0; i < count; i++) {
+        int offset = i * Trainer.RECORD_BYTES;
+        if (Long.bitCount(~(buffer.getLong(offset) | buffer.getLong(offset + 8))) > depth + 1) {
+          usable.add(offset);
+        }
+      }
+      if (!usable.isEmpty()) {
+        int offset = usable.get(random.nextInt(usable.size()));
+        return new long[] {buffer.getLong(offset), buffer.getLong(offset + 8)};
+      }
+    }
+  }
+
+  /**
+   * Searches a position to every depth with a full window and without pruning
+   *
+   * @param search the search, its table is cleared before every depth so that no score comes from
+   *     a deeper search
+   * @param board the position, with Black as the player to move
+   * @param maxDepth the deepest depth
+   * @return the score at each depth, from 0 for the evaluation
+   */
+  static int[] scores(Search search, Board board, int maxDepth) {
+    int scores[] = new int[maxDepth + 1];
+    for (int depth = 0; depth <= maxDepth; depth++) {
+      search.table.clear();
+      search.start(board, Long.MAX_VALUE);
+      scores[depth] = search.negamax(Game.BLACK, depth, -Search.INFINITE, Search.INFINITE);
+    }
+    return scores;
+  }
+
+  static void run(ArrayList<Callable<Void>> workers, int threads) {
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      for (Future<Void> result : pool.invokeAll(workers)) {
+        result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** Prints the fitted pairs, one line each */
+  public void print() {
+    System.out.println("stage depth shallow      slope  intercept      sigma");
+    for (int stage = 0; stage < STAGES; stage++) {
+      for (int depth = MIN_DEPTH; depth <= MAX_DEPTH; depth++) {
+        for (int check = 0; check < CHECKS; check++) {
+          if (sigma[stage][depth][check] > 0) {
+            System.out.printf(
+                "%5d %5d %7d %10.3f %10.1f %10.1f%n",
+                stage,
+                depth,
+                shallow(depth, check),
+                slope[stage][depth][check],
+                intercept[stage][depth][check],
+                sigma[stage][depth][check]);
+          }
+        }
+      }
+    }
+  }
+}
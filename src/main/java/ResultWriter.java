@@ -0,0 +1,84 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the output of a headless run through one large buffer. Workers collect their lines in a
+ * Batch of their own and only take the lock on the shared writer once per BATCH lines, so output
+ * costs little next to playing the games and lines from different workers never interleave.
+ */
+public class ResultWriter {
+  // Lines collected by a worker before they are handed to the shared writer
+  static final int BATCH = 256;
+
+  static final int BUFFER = 1 << 16;
+
+  final Writer out;
+
+  /**
+   * Creates a writer
+   *
+   * @param stream where the results go, it is flushed but never closed
+   */
+  public ResultWriter(OutputStream stream) {
+    out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII), BUFFER);
+  }
+
+  /** @return a new batch for one worker */
+  public Batch batch() {
+    return new Batch();
+  }
+
+  /**
+   * Writes a block of lines without interleaving it with other workers' output
+   *
+   * @param text the lines to be written
+   */
+  synchronized void write(CharSequence text) {
+    try {
+      out.append(text);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Pushes everything written so far to the stream */
+  public synchronized void flush() {
+    try {
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Collects the lines of one worker, it must only be used by that worker */
+  public class Batch {
+    final StringBuilder lines = new StringBuilder();
+    int count = 0;
+
+    /**
+     * Adds a line, writing the batch out once it is full
+     *
+     * @param line the line without its line separator
+     */
+    public void println(CharSequence line) {
+      lines.append(line).append('\n');
+      if (++count >= BATCH) {
+        flush();
+      }
+    }
+
+    /** Writes out the lines collected so far */
+    public void flush() {
+      if (count > 0) {
+        write(lines);
+        lines.setLength(0);
+        count = 0;
+      }
+    }
+  }
+}
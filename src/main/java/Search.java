@@ -0,0 +1,554 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An alpha-beta search in negamax form over bitboards. Every score is from the point of view of
+ * the player to move, so one routine handles both colors. A player with no legal move passes and
+ * the search continues with the other player, and the game ends when both have to pass.
+ */
+public class Search {
+  // Larger than any score the search can return
+  static final int INFINITE = 1000000;
+
+  // Returned by probCut when the node has to be searched
+  static final int NO_CUT = Integer.MIN_VALUE;
+
+  // A pass in a principal variation
+  static final int PASS = GameRecord.PASS;
+
+  // Longest line the search can follow from the root, every move but the last may be a pass
+  static final int MAX_HEIGHT = 2 * Board.SQUARES;
+
+  // Discs of difference the first aspiration window reaches either side of the last score, the
+  // window doubles every time the score falls outside it
+  static final double ASPIRATION = 0.25;
+
+  final Evaluator evaluator;
+  final int endWeight;
+
+  // Results shared between searches, may be null
+  final TranspositionTable table;
+
+  // The position being searched, moves are made and taken back on it in place
+  Board board;
+
+  // Orders the moves of each position, null to try the table move first and the rest by square
+  MoveOrder order = null;
+
+  // Cutoffs since the search was created, and how many of them the first move tried caused
+  long cutoffs = 0;
+  long firstCutoffs = 0;
+
+  // Discs on the board at the root, so the ply of a position is the number of discs added since
+  int rootDiscs = 0;
+
+  // Number of positions visited, best move, its score, the depth reached and the principal
+  // variation of the last search
+  long nodes = 0;
+  int move = -1;
+  int score = 0;
+  int reached = 0;
+  int pv[] = new int[0];
+
+  // Principal variation search: the moves after the first are searched with a null window and
+  // only searched again with the full window if they beat it, and each iteration starts with an
+  // aspiration window around the score of the previous one
+  boolean pvs = false;
+
+  // Principal variation found below each height of the running search, and its length
+  final int pvTable[][] = new int[MAX_HEIGHT + 1][MAX_HEIGHT];
+  final int pvLength[] = new int[MAX_HEIGHT + 1];
+
+  // Moves between the root and the position being searched, passes included
+  int height = 0;
+
+  // Depth of the first iteration, helper threads of a parallel search start deeper than 1 so that
+  // the threads are not all working on the same iteration
+  int firstDepth = 1;
+
+  // Helper threads share the table of the main search and must not age its entries again. Their
+  // stop flag is cleared by ParallelSearch before the search is handed to the thread, not by start,
+  // so a stop that comes before the thread gets to the search is not lost.
+  boolean helper = false;
+
+  // Multi-ProbCut calibration, null for a full width search, and how selective to be with it,
+  // from 0 (no pruning) to ProbCut.CONFIDENCE.length - 1
+  ProbCut probCut = null;
+  int selectivity = 0;
+
+  // System.nanoTime() when the running search started and nanoseconds it may run for
+  long startTime = 0;
+  long budget = Long.MAX_VALUE;
+  volatile boolean stopped = false;
+
+  // Set by whoever asked for the search to abandon it, null if it is never abandoned. Unlike a
+  // stop, which only reaches a search already running, it is checked whenever a search starts.
+  AtomicBoolean cancelled = null;
+
+  /**
+   * Creates a search
+   *
+   * @param evaluator scores positions at the search horizon
+   * @param endWeight the score of each disc of difference in a finished game
+   * @param table a transposition table to remember positions in, or null to search without one
+   */
+  public Search(Evaluator evaluator, double endWeight, TranspositionTable table) {
+    this.evaluator = evaluator;
+    this.endWeight = (int) endWeight;
+    this.table = table;
+  }
+
+  /**
+   * Searches a position to a fixed depth
+   *
+   * @param position the position to be searched, left unchanged when the search returns
+   * @param color the player to move
+   * @param depth the number of moves to look ahead
+   * @return the bit index of the best move, -1 if color has to pass
+   */
+  public int bestMove(Board position, int color, int depth) {
+    start(position, Long.MAX_VALUE);
+    int best = root(color, depth, -INFINITE, INFINITE);
+    move = best;
+    reached = depth;
+    pv = principalVariation();
+    board = null;
+    return best;
+  }
+
+  /**
+   * Searches a position one depth at a time until time runs out. A new iteration is only started
+   * while less than softMillis have passed, and an iteration still running after hardMillis is
+   * abandoned, so the move returned is always the best move of the last iteration that finished.
+   *
+   * @param position the position to be searched, left unchanged when the search returns
+   * @param color the player to move
+   * @param maxDepth the deepest iteration to run
+   * @param softMillis the time after which no new iteration is started
+   * @param hardMillis the time after which the running iteration is abandoned
+   * @return the bit index of the best move, -1 if color has to pass
+   */
+  public int iterate(Board position, int color, int maxDepth, long softMillis, long hardMillis) {
+    start(position, nanos(hardMillis));
+
+    int empties = Long.bitCount(board.empty());
+    long moves = board.legalMoves(color);
+    int best = moves == 0 ? -1 : Long.numberOfTrailingZeros(moves);
+    int bestScore = 0;
+    int completed = 0;
+    int line[] = new int[0];
+    long total = 0;
+
+    for (int d = Math.min(firstDepth, maxDepth); d <= maxDepth && best != -1; d++) {
+      // Search in a window around the last score first, widening whichever side the score falls
+      // outside of until it lands inside
+      int width = (int) (ASPIRATION * endWeight);
+      int alpha = pvs && completed > 0 ? bestScore - width : -INFINITE;
+      int beta = pvs && completed > 0 ? bestScore + width : INFINITE;
+      int move = root(color, d, alpha, beta);
+      total += nodes;
+      while (!stopped && (score <= alpha || score >= beta)) {
+        width *= 2;
+        alpha = score <= alpha ? Math.max(score - width, -INFINITE) : alpha;
+        beta = score >= beta ? Math.min(score + width, INFINITE) : beta;
+        move = root(color, d, alpha, beta);
+        total += nodes;
+      }
+      if (stopped) {
+        break;
+      }
+
+      best = move;
+      bestScore = score;
+      completed = d;
+      line = principalVariation();
+
+      // Deeper iterations cannot see anything new once they reach the end of the game
+      if (d >= empties || System.nanoTime() - startTime >= nanos(softMillis)) {
+        break;
+      }
+    }
+
+    board = null;
+    nodes = total;
+    move = best;
+    score = bestScore;
+    reached = completed;
+    pv = line;
+    return best;
+  }
+
+  /**
+   * @param millis a time in milliseconds
+   * @return the time in nanoseconds, Long.MAX_VALUE if it does not fit
+   */
+  static long nanos(long millis) {
+    return millis >= Long.MAX_VALUE / 1000000L ? Long.MAX_VALUE : millis * 1000000L;
+  }
+
+  /** @return the best move, score, depth and principal variation of the last search */
+  public SearchResult result() {
+    return new SearchResult(move, score, reached, pv, nodes);
+  }
+
+  /** @return the principal variation of the root search that just finished */
+  int[] principalVariation() {
+    return Arrays.copyOf(pvTable[0], pvLength[0]);
+  }
+
+  /** @return the share of cutoffs caused by the first move tried, 0 if there were none */
+  public double cutoffRate() {
+    return cutoffs == 0 ? 0 : (double) firstCutoffs / cutoffs;
+  }
+
+  /** Asks a running search to stop as soon as possible */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Prepares for a new search
+   *
+   * @param position the position to be searched
+   * @param budget the nanoseconds after which to stop searching
+   */
+  void start(Board position, long budget) {
+    board = position;
+    this.budget = budget;
+    startTime = System.nanoTime();
+    if (!helper) {
+      // Cleared before the request is checked, so a cancel in between still stops the search
+      stopped = false;
+      if (cancelled != null && cancelled.get()) {
+        stopped = true;
+      }
+    }
+    height = 0;
+    rootDiscs = Long.bitCount(~position.empty());
+    if (order != null) {
+      order.newSearch();
+    }
+    if (table != null && !helper) {
+      table.newSearch();
+    }
+  }
+
+  /**
+   * Searches the moves of the root position to a fixed depth. The score of the best move is left
+   * in score, and is only exact if it lies inside the window.
+   *
+   * @param color the player to move
+   * @param depth the number of moves to look ahead
+   * @param alpha the lowest score of interest
+   * @param beta the highest score of interest
+   * @return the bit index of the best move, -1 if color has to pass
+   */
+  int root(int color, int depth, int alpha, int beta) {
+    nodes = 0;
+    pvLength[0] = 0;
+
+    int original = alpha;
+    int best = -1;
+    int bestScore = -INFINITE;
+    int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    long moves = board.legalMoves(color);
+    int ttMove = table == null ? -1 : TranspositionTable.move(table.probe(key(color)));
+    boolean first = ttMove >= 0 && (moves & (1L << ttMove)) != 0;
+    int count = Long.bitCount(moves);
+    int list[] = null;
+    if (order != null) {
+      count = order.order(moves, ttMove, color, 0);
+      list = order.lists[0];
+    }
+
+    for (int i = 0; i < count; i++) {
+      int sq = list != null ? list[i] : next(moves, first ? ttMove : -1);
+      first = false;
+      moves &= ~(1L << sq);
+
+      long flipped = board.play(color, sq);
+      int score = child(other, depth - 1, alpha, beta, best != -1);
+      board.undo(color, sq, flipped);
+
+      if (stopped) {
+        return best;
+      }
+
+      if (best == -1 || score > bestScore) {
+        bestScore = score;
+        best = sq;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta) {
+            break;
+          }
+          extend(sq);
+        }
+      }
+    }
+
+    if (table != null && best != -1) {
+      table.store(key(color), depth, flag(bestScore, original, beta), bestScore, best);
+    }
+
+    score = bestScore;
+    return best;
+  }
+
+  /**
+   * Searches the position after a move. With pvs, a move after the first is first searched with a
+   * null window to show it is no better than alpha, and only searched again with the full window
+   * if it is.
+   *
+   * @param other the player to move after the move
+   * @param depth the number of moves left to look ahead after the move
+   * @param alpha the score the player who moved is already guaranteed
+   * @param beta the score the opponent is already guaranteed
+   * @param scout true if an earlier move has been searched, so a null window may be tried
+   * @return the score of the move for the player who made it
+   */
+  int child(int other, int depth, int alpha, int beta, boolean scout) {
+    height++;
+    int score;
+    if (pvs && scout && beta - alpha > 1) {
+      score = -negamax(other, depth, -alpha - 1, -alpha);
+      if (score > alpha && score < beta) {
+        score = -negamax(other, depth, -beta, -alpha);
+      }
+    } else {
+      score = -negamax(other, depth, -beta, -alpha);
+    }
+    height--;
+    return score;
+  }
+
+  /**
+   * Makes the principal variation at the current height the move followed by the one found after
+   * it, called when the move scores inside the window
+   *
+   * @param sq the bit index of the move, or PASS
+   */
+  void extend(int sq) {
+    int below = pvLength[height + 1];
+    pvTable[height][0] = sq;
+    System.arraycopy(pvTable[height + 1], 0, pvTable[height], 1, below);
+    pvLength[height] = below + 1;
+  }
+
+  /**
+   * @param best the score of a position
+   * @param alpha the alpha the position was searched with
+   * @param beta the beta the position was searched with
+   * @return how the score bounds the true score, as stored in the transposition table
+   */
+  static int flag(int best, int alpha, int beta) {
+    return best <= alpha
+        ? TranspositionTable.UPPER
+        : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+  }
+
+  /**
+   * Scores the current position with alpha-beta pruning. Moves are made on the shared board and
+   * taken back with the recorded flip mask, so the search never copies a position.
+   *
+   * @param color the player to move
+   * @param depth the number of moves left to look ahead
+   * @param alpha the score color is already guaranteed
+   * @param beta the score the opponent is already guaranteed
+   * @return the score of the position for color
+   */
+  int negamax(int color, int depth, int alpha, int beta) {
+    // Only look at the clock every so often, it is slow compared with a node
+    if ((++nodes & 1023) == 0 && System.nanoTime() - startTime >= budget) {
+      stopped = true;
+    }
+    if (stopped) {
+      return 0;
+    }
+    pvLength[height] = 0;
+
+    int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    long player = board.discs(color);
+    long opponent = board.discs(other);
+    long moves = Board.moves(player, opponent);
+
+    if (moves == 0) {
+      // Both players have to pass, the game is over
+      if (Board.moves(opponent, player) == 0) {
+        return end(player, opponent);
+      }
+      // Pass without using up depth, the opponent moves from the same position
+      int score = child(other, depth, alpha, beta, false);
+      extend(PASS);
+      return score;
+    }
+
+    if (depth <= 0) {
+      return evaluator.evaluate(player, opponent);
+    }
+
+    // Use what an earlier search of this position already proved
+    long key = key(color);
+    int ttMove = -1;
+    if (table != null) {
+      long entry = table.probe(key);
+      if (entry != 0) {
+        ttMove = TranspositionTable.move(entry);
+        if (TranspositionTable.depth(entry) >= depth) {
+          int score = TranspositionTable.score(entry);
+          int flag = TranspositionTable.flag(entry);
+          if (flag == TranspositionTable.EXACT
+              || (flag == TranspositionTable.LOWER && score >= beta)
+              || (flag == TranspositionTable.UPPER && score <= alpha)) {
+            return score;
+          }
+        }
+      }
+    }
+
+    // Try to cut the node with a shallow search before searching it deeply
+    if (selectivity > 0 && probCut != null && depth >= ProbCut.MIN_DEPTH) {
+      int cut = probCut(color, depth, alpha, beta, ProbCut.stage(player, opponent));
+      if (stopped) {
+        return 0;
+      }
+      if (cut != NO_CUT) {
+        return cut;
+      }
+
+      // The shallow searches ran at this height, their line is not this node's
+      pvLength[height] = 0;
+    }
+
+    int original = alpha;
+    int best = -INFINITE;
+    int bestMove = -1;
+    boolean first = ttMove >= 0 && (moves & (1L << ttMove)) != 0;
+    int ply = Long.bitCount(player | opponent) - rootDiscs;
+    int count = Long.bitCount(moves);
+    int list[] = null;
+    if (order != null) {
+      count = order.order(moves, ttMove, color, ply);
+      list = order.lists[ply];
+    }
+
+    for (int i = 0; i < count; i++) {
+      int sq = list != null ? list[i] : next(moves, first ? ttMove : -1);
+      first = false;
+      moves &= ~(1L << sq);
+
+      long flipped = board.play(color, sq);
+      int score = child(other, depth - 1, alpha, beta, i > 0);
+      board.undo(color, sq, flipped);
+
+      // The score is meaningless once the search has been stopped, do not store it
+      if (stopped) {
+        return 0;
+      }
+
+      if (score > best) {
+        best = score;
+        bestMove = sq;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta) {
+            cutoffs++;
+            if (i == 0) {
+              firstCutoffs++;
+            }
+            if (order != null) {
+              order.cutoff(sq, color, ply, depth);
+            }
+            break;
+          }
+          extend(sq);
+        }
+      }
+    }
+
+    if (table != null) {
+      table.store(key, depth, flag(best, original, beta), best, bestMove);
+    }
+
+    return best;
+  }
+
+  /**
+   * Multi-ProbCut: predicts the score of a deep search from null window searches at the shallow
+   * depths of the calibration, cheapest first, and cuts if the prediction is far enough outside
+   * the window
+   *
+   * @param color the player to move
+   * @param depth the depth of the node
+   * @param alpha the score color is already guaranteed
+   * @param beta the score the opponent is already guaranteed
+   * @param stage the stage of the game of the position
+   * @return beta or alpha to cut the node, NO_CUT to search it
+   */
+  int probCut(int color, int depth, int alpha, int beta, int stage) {
+    double confidence = ProbCut.CONFIDENCE[selectivity];
+    for (int check = 0; check < ProbCut.CHECKS; check++) {
+      int shallow = ProbCut.shallow(depth, check);
+      double sigma = shallow < 0 ? 0 : probCut.sigma[stage][depth][check];
+      if (sigma <= 0) {
+        continue;
+      }
+      double slope = probCut.slope[stage][depth][check];
+      double intercept = probCut.intercept[stage][depth][check];
+
+      // A shallow score of at least high makes the deep score beta or more
+      double high = (beta + confidence * sigma - intercept) / slope;
+      if (high < INFINITE) {
+        int bound = (int) Math.ceil(high);
+        if (negamax(color, shallow, bound - 1, bound) >= bound) {
+          return beta;
+        }
+      }
+
+      // A shallow score of at most low makes the deep score alpha or less
+      double low = (alpha - confidence * sigma - intercept) / slope;
+      if (low > -INFINITE) {
+        int bound = (int) Math.floor(low);
+        if (negamax(color, shallow, bound, bound + 1) <= bound) {
+          return alpha;
+        }
+      }
+    }
+    return NO_CUT;
+  }
+
+  /**
+   * Picks the next move to try when there is no MoveOrder
+   *
+   * @param moves the moves not tried yet
+   * @param ttMove the move that was best last time, tried first, -1 once it has been tried
+   * @return the bit index of the move
+   */
+  static int next(long moves, int ttMove) {
+    return ttMove >= 0 ? ttMove : Long.numberOfTrailingZeros(moves);
+  }
+
+  /**
+   * The key is the board's incremental hash rather than the canonical one the book, perft and the
+   * endgame solver use (see Symmetry): finding the canonical orientation costs more than updating
+   * the hash at every node, and past the first moves, which the book covers, a position is rarely
+   * symmetric to another one in the same search.
+   *
+   * @param color the player to move
+   * @return the transposition table key of the board with color to move
+   */
+  long key(int color) {
+    return Zobrist.key(board.hash, color);
+  }
+
+  /**
+   * Scores a finished game
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @return the disc difference for player multiplied by the end weight
+   */
+  int end(long player, long opponent) {
+    return (Long.bitCount(player) - Long.bitCount(opponent)) * endWeight;
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * What a Search found: the best move, its score, the depth of the last iteration that finished and
+ * the principal variation, the line both players are expected to play from the position.
+ *
+ * <p>The principal variation starts with the best move and may end before the search depth where
+ * the search took a score from the transposition table instead of searching further.
+ */
+public class SearchResult {
+  // Bit index of the best move, -1 if the player to move has to pass
+  public final int move;
+
+  // Score of the best move for the player to move
+  public final int score;
+
+  // Depth of the last iteration that finished
+  public final int depth;
+
+  // Moves from the position, Search.PASS where a player has to pass
+  public final int pv[];
+
+  // Positions visited by the whole search
+  public final long nodes;
+
+  /**
+   * Creates a result
+   *
+   * @param move the bit index of the best move, -1 if the player to move has to pass
+   * @param score the score of the best move
+   * @param depth the depth of the last iteration that finished
+   * @param pv the principal variation, starting with the best move
+   * @param nodes the positions visited
+   */
+  public SearchResult(int move, int score, int depth, int pv[], long nodes) {
+    this.move = move;
+    this.score = score;
+    this.depth = depth;
+    this.pv = pv;
+    this.nodes = nodes;
+  }
+
+  /** @return the result on one line: depth, score, nodes and the principal variation */
+  @Override
+  public String toString() {
+    StringBuilder line = new StringBuilder();
+    line.append("depth ").append(depth).append(" score ").append(score);
+    line.append(" nodes ").append(nodes).append(" pv");
+    for (int sq : pv) {
+      line.append(' ').append(GameRecord.name(sq));
+    }
+    return line.toString();
+  }
+}
@@ -0,0 +1,471 @@
+/**
+ * The tree White's searchStrategy builds, kept from one move to the next. After White moves and
+ * Black replies, the node for the position reached is already in the tree with its subtree built,
+ * so the next search only has to add the deepest level instead of starting again.
+ *
+ * <p>Nodes live in parallel primitive arrays rather than in Node objects, and the children of a
+ * node are stored next to each other so a node only needs the index of its first child and the
+ * number of children. Before a new search the subtree being kept is compacted to the front of the
+ * arrays and the rest of the tree is dropped. The arrays grow as needed up to a memory cap.
+ *
+ * <p>The tree is scored with the same leaf values as buildTree and minimax, but searched with
+ * alpha-beta, and a node is only expanded when the search reaches it. Every node keeps the score
+ * it last got, and the children of a node are tried best first by those scores, so the scores of
+ * a kept subtree order the next search and it prunes more. The children of the root are tried in
+ * board order and the first of equal moves is taken, so the moves chosen are those of minimax.
+ *
+ * <p>A subtree is only kept if the previous search built it. At the default depth of 2 the
+ * position after White's move and Black's reply was a leaf of the previous search, so nothing
+ * under it is kept and the tree only saves work from depth 3 on.
+ */
+public class SearchTree {
+  // Bytes taken by one node across all the arrays, including the compaction map
+  static final int NODE_BYTES = 44;
+
+  static final int INITIAL_NODES = 4096;
+
+  // Value of first for a node that has not been expanded
+  static final int UNEXPANDED = -1;
+
+  // Value of each square in the point table, and the squares next to it
+  static final int POINTS[] = new int[Board.SQUARES];
+  static final long NEIGHBORS[] = new long[Board.SQUARES];
+
+  static {
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      POINTS[sq] = White.pointTable[Board.row(sq)][Board.column(sq)];
+      for (int other = 0; other < Board.SQUARES; other++) {
+        if (other != sq
+            && Math.abs(Board.row(other) - Board.row(sq)) <= 1
+            && Math.abs(Board.column(other) - Board.column(sq)) <= 1) {
+          NEIGHBORS[sq] |= 1L << other;
+        }
+      }
+    }
+  }
+
+  final int maxNodes;
+
+  // The position of each node, the player to move there and the move that reached it
+  long black[];
+  long white[];
+  byte turn[];
+  byte move[];
+
+  // What buildTree keeps in a Node: points of the move, mobility and end of the game
+  int position[];
+  int mobility[];
+  byte end[];
+
+  // Score of each node for Black from the last search that reached it, the leaf value until then
+  double value[];
+
+  // Index of the first child and number of children
+  int first[];
+  byte count[];
+
+  // New index of each node during compaction
+  int remap[];
+
+  int size = 0;
+  int root = -1;
+
+  // Nodes built and nodes kept from the previous search, for the last search
+  int built = 0;
+  int reused = 0;
+
+  // Set when a node could not be expanded for lack of memory, which abandons the search
+  boolean full = false;
+
+  // Children of the nodes being searched in the order they are tried, by depth left
+  int lists[][] = new int[0][];
+
+  /**
+   * Creates an empty tree
+   *
+   * @param memoryMB the most memory the tree may use in megabytes
+   */
+  public SearchTree(int memoryMB) {
+    this.maxNodes = (int) Math.min(Integer.MAX_VALUE, ((long) memoryMB << 20) / NODE_BYTES);
+    allocate(Math.min(INITIAL_NODES, maxNodes));
+  }
+
+  /** Forgets the tree, for example at the start of a new game */
+  public void clear() {
+    size = 0;
+    root = -1;
+  }
+
+  /**
+   * Finds the best move of a position with the search of searchStrategy, reusing the part of the
+   * previous tree that is still reachable
+   *
+   * @param game the current state of the game
+   * @param color the player to move
+   * @param depth the depth of the search tree
+   * @return the bit index of the best move, -1 if color cannot move or the tree would need more
+   *     memory than it may use
+   */
+  public int bestMove(Game game, int color, int depth) {
+    int kept = find(game.black, game.white, color);
+    if (kept == -1) {
+      clear();
+      kept = add(game.black, game.white, color, -1, 0, game.legalMoves(color));
+    } else {
+      kept = compact(kept);
+    }
+    root = kept;
+    reused = size;
+    if (lists.length <= depth) {
+      lists = new int[depth + 1][Board.SQUARES];
+    }
+
+    full = false;
+    int best = minimax(root, color, depth);
+    if (full) {
+      clear();
+      return -1;
+    }
+    built = size - reused;
+    return best;
+  }
+
+  /**
+   * Looks for a position among the nodes within two moves of the root
+   *
+   * @return the index of the node, -1 if there is none
+   */
+  int find(long b, long w, int color) {
+    if (root == -1) {
+      return -1;
+    }
+    if (matches(root, b, w, color)) {
+      return root;
+    }
+    for (int c = first[root]; first[root] >= 0 && c < first[root] + count[root]; c++) {
+      if (matches(c, b, w, color)) {
+        return c;
+      }
+      for (int g = first[c]; first[c] >= 0 && g < first[c] + count[c]; g++) {
+        if (matches(g, b, w, color)) {
+          return g;
+        }
+      }
+    }
+    return -1;
+  }
+
+  boolean matches(int node, long b, long w, int color) {
+    return black[node] == b && white[node] == w && turn[node] == color;
+  }
+
+  /**
+   * Moves the subtree under a node to the front of the arrays and drops everything else. Children
+   * are always added after their parent and next to each other, so keeping the nodes in the same
+   * order moves every node to an index no higher than its own and keeps siblings together.
+   *
+   * @param keep the node to keep
+   * @return the new index of the node
+   */
+  int compact(int keep) {
+    for (int i = 0; i < size; i++) {
+      remap[i] = -1;
+    }
+
+    // Mark the subtree, children always come after their parent
+    remap[keep] = 0;
+    for (int i = keep; i < size; i++) {
+      if (remap[i] >= 0 && first[i] >= 0) {
+        for (int c = first[i]; c < first[i] + count[i]; c++) {
+          remap[c] = 0;
+        }
+      }
+    }
+
+    int next = 0;
+    for (int i = keep; i < size; i++) {
+      if (remap[i] >= 0) {
+        remap[i] = next;
+        copy(i, next++);
+      }
+    }
+    // A node expanded without children points past the end, so it is left to be expanded again
+    for (int i = 0; i < next; i++) {
+      if (first[i] >= 0 && count[i] > 0) {
+        first[i] = remap[first[i]];
+      } else {
+        first[i] = UNEXPANDED;
+      }
+    }
+    size = next;
+    return 0;
+  }
+
+  void copy(int from, int to) {
+    if (from == to) {
+      return;
+    }
+    black[to] = black[from];
+    white[to] = white[from];
+    turn[to] = turn[from];
+    move[to] = move[from];
+    position[to] = position[from];
+    mobility[to] = mobility[from];
+    end[to] = end[from];
+    value[to] = value[from];
+    first[to] = first[from];
+    count[to] = count[from];
+  }
+
+  /**
+   * Adds the children of a node, scoring each move as pointMove would: the points of the discs it
+   * flips, plus the points of the square played once for every direction it flips in
+   *
+   * @return false if the tree ran out of memory
+   */
+  boolean expand(int node) {
+    int color = turn[node];
+    int next = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    long b = black[node];
+    long w = white[node];
+    long player = color == Game.BLACK ? b : w;
+    long opponent = color == Game.BLACK ? w : b;
+    long moves = Board.moves(player, opponent);
+
+    if (size + Long.bitCount(moves) > capacity() && !grow(size + Long.bitCount(moves))) {
+      full = true;
+      return false;
+    }
+
+    int start = size;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+
+      long flipped = Board.flips(player, opponent, sq);
+      int points = Long.bitCount(flipped & NEIGHBORS[sq]) * POINTS[sq];
+      for (long left = flipped; left != 0; left &= left - 1) {
+        points += POINTS[Long.numberOfTrailingZeros(left)];
+      }
+
+      long mover = player | flipped | (1L << sq);
+      long other = opponent & ~flipped;
+      long childBlack = color == Game.BLACK ? mover : other;
+      long childWhite = color == Game.BLACK ? other : mover;
+      add(childBlack, childWhite, next, sq, points, Board.moves(other, mover));
+    }
+    first[node] = start;
+    count[node] = (byte) (size - start);
+    mobility[node] = size - start;
+    return true;
+  }
+
+  /**
+   * Adds a node that has not been expanded
+   *
+   * @param nextMoves the legal moves of the player to move, for mobility
+   * @return the index of the node
+   */
+  int add(long b, long w, int color, int sq, int points, long nextMoves) {
+    int node = size++;
+    black[node] = b;
+    white[node] = w;
+    turn[node] = (byte) color;
+    move[node] = (byte) sq;
+    position[node] = points;
+    mobility[node] = Long.bitCount(nextMoves);
+    first[node] = UNEXPANDED;
+    count[node] = 0;
+
+    // The game is over when neither player can move, as in White.endCheck
+    end[node] = -1;
+    long other = Board.moves(color == Game.BLACK ? w : b, color == Game.BLACK ? b : w);
+    if (nextMoves == 0 && other == 0) {
+      int blackCount = Long.bitCount(b);
+      int whiteCount = Long.bitCount(w);
+      end[node] =
+          (byte) (blackCount > whiteCount ? Game.BLACK : whiteCount > blackCount ? Game.WHITE : 0);
+    }
+
+    // Until the node is searched, its leaf value for the player who moved into it
+    double leaf = leaf(node, color == Game.BLACK ? Game.WHITE : Game.BLACK, true);
+    value[node] = color == Game.BLACK ? -leaf : leaf;
+    return node;
+  }
+
+  /** Chooses the child of the root with the best min-value, the first one on ties */
+  int minimax(int node, int color, int depth) {
+    if (depth <= 0 || end[node] != -1 || (first[node] == UNEXPANDED && !expand(node))) {
+      return -1;
+    }
+    double max = 0;
+    int best = -1;
+    for (int c = first[node]; c < first[node] + count[node]; c++) {
+      // Only a move better than the best so far can be chosen, so the others need no exact value
+      double value = minValue(c, color, depth - 1, best == -1 ? -White.INFINITE : max);
+      if (full) {
+        return -1;
+      }
+      if (best == -1 || value > max) {
+        max = value;
+        best = c;
+      }
+    }
+    return best == -1 ? -1 : move[best];
+  }
+
+  /**
+   * @param node the node
+   * @param color the player choosing the move at the root
+   * @param depth the depth left below the node
+   * @param alpha the score color already has, a min-value at or below it is not exact
+   * @return the min-value of the node for color
+   */
+  double minValue(int node, int color, int depth, double alpha) {
+    int tried = order(node, depth);
+    if (tried == 0) {
+      return leaf(node, color, true);
+    }
+    double min = White.INFINITE;
+    for (int i = 0; i < tried && min > alpha && !full; i++) {
+      int c = lists[depth][i];
+      min = Math.min(min, maxValue(c, color, depth - 1, alpha, min));
+    }
+    store(node, color, min);
+    return min;
+  }
+
+  /**
+   * @param node the node
+   * @param color the player choosing the move at the root
+   * @param depth the depth left below the node
+   * @param alpha the score color already has
+   * @param beta the score the opponent already has, a max-value at or above it is not exact
+   * @return the max-value of the node for color
+   */
+  double maxValue(int node, int color, int depth, double alpha, double beta) {
+    int tried = order(node, depth);
+    if (tried == 0) {
+      return leaf(node, color, false);
+    }
+    double max = -White.INFINITE;
+    for (int i = 0; i < tried && max < beta && !full; i++) {
+      int c = lists[depth][i];
+      max = Math.max(max, minValue(c, color, depth - 1, Math.max(alpha, max)));
+    }
+    store(node, color, max);
+    return max;
+  }
+
+  /**
+   * @param node a node at the horizon, or one without children
+   * @param color the player choosing the move at the root
+   * @param minimizing true for the min-value, false for the max-value
+   * @return the value minValue or maxValue gives the node as a leaf, for color
+   */
+  double leaf(int node, int color, boolean minimizing) {
+    if (end[node] == -1) {
+      double score = position[node] * White.POSITIONWEIGHT - mobility[node] * White.MOBILITYWEIGHT;
+      return minimizing ? score : -score;
+    }
+    return end[node] == color ? White.ENDWEIGHT : -White.ENDWEIGHT;
+  }
+
+  /** Keeps the score of a node for Black, to order the next search */
+  void store(int node, int color, double score) {
+    if (!full) {
+      value[node] = color == Game.BLACK ? score : -score;
+    }
+  }
+
+  /**
+   * Expands a node if needed and lists its children best first for the player to move, by their
+   * scores from earlier searches, in lists[depth]
+   *
+   * @return the number of children, 0 if the node is a leaf of this search
+   */
+  int order(int node, int depth) {
+    if (depth <= 0 || end[node] != -1) {
+      return 0;
+    }
+    if (first[node] == UNEXPANDED && !expand(node)) {
+      return 0;
+    }
+
+    int list[] = lists[depth];
+    int sign = turn[node] == Game.BLACK ? 1 : -1;
+    for (int i = 0; i < count[node]; i++) {
+      int c = first[node] + i;
+      double v = sign * value[c];
+      int j = i;
+      while (j > 0 && sign * value[list[j - 1]] < v) {
+        list[j] = list[j - 1];
+        j--;
+      }
+      list[j] = c;
+    }
+    return count[node];
+  }
+
+  int capacity() {
+    return black.length;
+  }
+
+  /** @return the memory taken by the tree in bytes */
+  public long bytes() {
+    return (long) capacity() * NODE_BYTES;
+  }
+
+  /**
+   * Makes room for at least a number of nodes, doubling the arrays up to the memory cap
+   *
+   * @return false if that many nodes would not fit under the cap
+   */
+  boolean grow(int nodes) {
+    if (nodes > maxNodes) {
+      return false;
+    }
+    int length = capacity();
+    while (length < nodes) {
+      length = (int) Math.min((long) length * 2, maxNodes);
+    }
+
+    long oldBlack[] = black;
+    long oldWhite[] = white;
+    byte oldTurn[] = turn;
+    byte oldMove[] = move;
+    int oldPosition[] = position;
+    int oldMobility[] = mobility;
+    byte oldEnd[] = end;
+    double oldValue[] = value;
+    int oldFirst[] = first;
+    byte oldCount[] = count;
+
+    allocate(length);
+    System.arraycopy(oldBlack, 0, black, 0, size);
+    System.arraycopy(oldWhite, 0, white, 0, size);
+    System.arraycopy(oldTurn, 0, turn, 0, size);
+    System.arraycopy(oldMove, 0, move, 0, size);
+    System.arraycopy(oldPosition, 0, position, 0, size);
+    System.arraycopy(oldMobility, 0, mobility, 0, size);
+    System.arraycopy(oldEnd, 0, end, 0, size);
+    System.arraycopy(oldValue, 0, value, 0, size);
+    System.arraycopy(oldFirst, 0, first, 0, size);
+    System.arraycopy(oldCount, 0, count, 0, size);
+    return true;
+  }
+
+  void allocate(int nodes) {
+    black = new long[nodes];
+    white = new long[nodes];
+    turn = new byte[nodes];
+    move = new byte[nodes];
+    position = new int[nodes];
+    mobility = new int[nodes];
+    end = new byte[nodes];
+    value = new double[nodes];
+    first = new int[nodes];
+    count = new byte[nodes];
+    remap = new int[nodes];
+  }
+}
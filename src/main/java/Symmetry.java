@@ -0,0 +1,116 @@
+/**
+ * The 8 symmetries of the board: the identity, the rotations and the reflections. Transform t
+ * first swaps rows and columns if bit 2 is set, then mirrors the columns if bit 0 is set and the
+ * rows if bit 1 is set.
+ *
+ * <p>Positions that are symmetric to each other have the same value and the same moves, moved by
+ * the symmetry, so a cache can store them all under one canonical position: the smallest of the 8
+ * images of the position. A move found for the canonical position is moved back to the position
+ * asked about by the inverse transform.
+ */
+public class Symmetry {
+  static final int TRANSFORMS = 8;
+
+  /**
+   * Moves a square by a symmetry
+   *
+   * @param t the number of the symmetry, 0 to 7
+   * @param sq the bit index of the square
+   * @return the bit index of the square it moves to
+   */
+  public static int square(int t, int sq) {
+    int row = sq >>> 3;
+    int column = sq & 7;
+    if ((t & 4) != 0) {
+      int swap = row;
+      row = column;
+      column = swap;
+    }
+    if ((t & 1) != 0) {
+      column = 7 - column;
+    }
+    if ((t & 2) != 0) {
+      row = 7 - row;
+    }
+    return row * Board.SIZE + column;
+  }
+
+  /**
+   * Moves discs by a symmetry, as square does for a single square
+   *
+   * @param t the number of the symmetry, 0 to 7
+   * @param discs the discs to be moved
+   * @return the discs after the symmetry
+   */
+  public static long transform(int t, long discs) {
+    if ((t & 4) != 0) {
+      discs = transpose(discs);
+    }
+    if ((t & 1) != 0) {
+      discs = mirrorColumns(discs);
+    }
+    if ((t & 2) != 0) {
+      discs = Long.reverseBytes(discs);
+    }
+    return discs;
+  }
+
+  /**
+   * Finds the symmetry that undoes another. Mirroring the columns and then swapping rows and
+   * columns is the same as swapping first and then mirroring the rows, so undoing a symmetry with
+   * a swap trades the two mirrors.
+   *
+   * @param t the number of a symmetry
+   * @return the number of its inverse
+   */
+  public static int inverse(int t) {
+    return (t & 4) == 0 ? t : 4 | (t & 1) << 1 | (t & 2) >>> 1;
+  }
+
+  /**
+   * Finds the symmetry that makes a position canonical: the one giving the smallest player discs,
+   * and of those the smallest opponent discs, the lowest numbered one if several give the same
+   *
+   * @param player the discs of the player to move
+   * @param opponent the discs of the other player
+   * @return the number of the symmetry
+   */
+  public static int canonical(long player, long opponent) {
+    int best = 0;
+    long bestPlayer = player;
+    long bestOpponent = opponent;
+    for (int t = 1; t < TRANSFORMS; t++) {
+      long p = transform(t, player);
+      if (p > bestPlayer) {
+        continue;
+      }
+      long o = transform(t, opponent);
+      if (p < bestPlayer || o < bestOpponent) {
+        best = t;
+        bestPlayer = p;
+        bestOpponent = o;
+      }
+    }
+    return best;
+  }
+
+  /** @return the discs mirrored in the diagonal from square 0 to square 63 */
+  static long transpose(long x) {
+    long t;
+    t = 0x0f0f0f0f00000000L & (x ^ (x << 28));
+    x ^= t ^ (t >>> 28);
+    t = 0x3333000033330000L & (x ^ (x << 14));
+    x ^= t ^ (t >>> 14);
+    t = 0x5500550055005500L & (x ^ (x << 7));
+    x ^= t ^ (t >>> 7);
+    return x;
+  }
+
+  /** @return the discs with the columns of every row in reverse order */
+  static long mirrorColumns(long x) {
+    x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+    x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+    x = ((x >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((x & 0x0f0f0f0f0f0f0f0fL) << 4);
+    return x;
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Splits a time budget between the moves of a game. With a budget per move every move gets the
+ * same time. With a budget per game the remaining time is shared between the moves still to play,
+ * estimated from the number of empty squares, with the midgame getting more than its share since
+ * that is where deeper search changes the outcome most.
+ */
+public class TimeManager {
+  // Fractions of the per-move share given in each phase of the game
+  static final double OPENING = 0.6;
+  static final double MIDGAME = 1.4;
+  static final double ENDGAME = 1.0;
+
+  // Empty squares at which the opening ends and the endgame begins
+  static final int OPENING_EMPTIES = 46;
+  static final int ENDGAME_EMPTIES = 20;
+
+  // An iteration takes several times longer than the one before, so don't start one after this
+  // fraction of the budget has gone
+  static final double SOFT_FRACTION = 0.5;
+
+  // Never spend more than this fraction of the remaining game time on one move
+  static final double MAX_FRACTION = 0.25;
+
+  final long moveMillis;
+  final long gameMillis;
+  long remaining;
+
+  /**
+   * Creates a time manager
+   *
+   * @param moveMillis the time for each move, or 0 to budget by game
+   * @param gameMillis the time for the whole game, used when moveMillis is 0
+   */
+  public TimeManager(long moveMillis, long gameMillis) {
+    this.moveMillis = moveMillis;
+    this.gameMillis = gameMillis;
+    this.remaining = gameMillis;
+  }
+
+  /** Gives back the full game time for a new game */
+  public void newGame() {
+    remaining = gameMillis;
+  }
+
+  /**
+   * Decides how long the next move may take
+   *
+   * @param empties the number of empty squares on the board
+   * @return the hard limit for the move in milliseconds
+   */
+  public long allocate(int empties) {
+    if (moveMillis > 0) {
+      return moveMillis;
+    }
+
+    // Each player makes about half of the remaining moves
+    long movesLeft = Math.max(1, (empties + 1) / 2);
+    double share = (double) remaining / movesLeft;
+
+    if (empties > OPENING_EMPTIES) {
+      share *= OPENING;
+    } else if (empties > ENDGAME_EMPTIES) {
+      share *= MIDGAME;
+    } else {
+      share *= ENDGAME;
+    }
+
+    return Math.max(1, Math.min((long) share, (long) (remaining * MAX_FRACTION)));
+  }
+
+  /**
+   * @param hardMillis a limit returned by allocate
+   * @return the time after which no new iteration should be started
+   */
+  public long soft(long hardMillis) {
+    return (long) (hardMillis * SOFT_FRACTION);
+  }
+
+  /**
+   * Charges the time a move took to the game budget
+   *
+   * @param millis the time the move took
+   */
+  public void used(long millis) {
+    remaining = Math.max(0, remaining - millis);
+  }
+
+  /** @return the time left for the rest of the game in milliseconds */
+  public long remaining() {
+    return remaining;
+  }
+}
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays many computer vs. computer games without the GUI, spread over a pool of worker threads.
+ * Every worker has its own Game and its own Black and White players, so games share nothing but
+ * the result counters, which are LongAdders to keep contention between workers low. Each White has
+ * its own transposition table and search threads, so those multiply with the workers.
+ *
+ * <p>Output goes through a ResultWriter and how much is written is set by the output level:
+ * nothing, only the summary, one compact line per game, or the board after every move.
+ */
+public class Tournament {
+  static final int BLACK = Game.BLACK;
+  static final int WHITE = Game.WHITE;
+
+  final int games;
+  final int workers;
+  final long moveMillis;
+  final int searchThreads;
+
+  // Output levels, each one prints everything the levels before it do
+  static final int SILENT = 0; // Nothing at all
+  static final int SUMMARY = 1; // The totals once all games are over
+  static final int GAMES = 2; // One line per game: number, winner, Black discs, White discs, turns
+  static final int BOARDS = 3; // The board after every move and the winner of every game
+
+  static final String LEVELS[] = {"silent", "summary", "games", "boards"};
+
+  int output = SUMMARY;
+  final ResultWriter writer = new ResultWriter(System.out);
+
+  // Size of the transposition table of each White in megabytes
+  int tableSizeMB = White.TABLESIZE;
+
+  // Opening book shared by every White, null for none
+  OpeningBook book = null;
+
+  // Evaluation shared by every White, null for White's own
+  Evaluator evaluator = null;
+
+  // ProbCut calibration of that evaluation shared by every White, and how selective White is
+  ProbCut probCut = null;
+  int selectivity = 0;
+
+  // Where every game is recorded, null to keep only the totals
+  GameRecordWriter records = null;
+
+  // Game i seeds Black's random moves with seed + i, so a recorded game can be played again
+  long seed = System.nanoTime();
+
+  // Index of the next game to be played
+  final AtomicInteger next = new AtomicInteger();
+
+  final LongAdder whiteWon = new LongAdder();
+  final LongAdder blackWon = new LongAdder();
+  final LongAdder ties = new LongAdder();
+  final LongAdder moves = new LongAdder();
+  long runTime = 0;
+
+  /**
+   * Creates a tournament
+   *
+   * @param games the number of games to play
+   * @param workers the number of games played at the same time
+   * @param moveMillis the time White may think per move, 0 for a fixed depth
+   * @param searchThreads the number of threads each White searches with
+   */
+  public Tournament(int games, int workers, long moveMillis, int searchThreads) {
+    this.games = games;
+    this.workers = Math.max(1, Math.min(workers, games));
+    this.moveMillis = moveMillis;
+    this.searchThreads = searchThreads;
+  }
+
+  /**
+   * Shares processors out between games searched on several threads each
+   *
+   * @param processors the number of processors to use
+   * @param searchThreads the number of threads each White searches with
+   * @return how many games to play at the same time so all their threads fit the processors, at
+   *     least 1
+   */
+  public static int workers(int processors, int searchThreads) {
+    return Math.max(1, processors / Math.max(1, searchThreads));
+  }
+
+  /** Plays all the games and waits for them to finish */
+  public void run() {
+    long startTime = System.currentTimeMillis();
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+
+    try {
+      ArrayList<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (int w = 0; w < workers; w++) {
+        results.add(pool.submit((Callable<Void>) this::work));
+      }
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+
+    runTime = System.currentTimeMillis() - startTime;
+    writer.flush();
+  }
+
+  /**
+   * Finds an output level by name
+   *
+   * @param name silent, summary, games or boards
+   * @return the level, -1 if there is no level of that name
+   */
+  public static int level(String name) {
+    for (int i = 0; i < LEVELS.length; i++) {
+      if (LEVELS[i].equalsIgnoreCase(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Plays games on one worker until every game has been handed out */
+  Void work() throws IOException {
+    Game game = new Game();
+    Black black = new Black();
+    White white = new White(tableSizeMB);
+    if (moveMillis > 0) white.setTimePerMove(moveMillis);
+    if (searchThreads > 1) white.setThreads(searchThreads);
+    white.setBook(book);
+    if (evaluator != null) white.setEvaluator(evaluator);
+    if (probCut != null) white.setProbCut(probCut, selectivity);
+
+    ResultWriter.Batch batch = writer.batch();
+
+    try {
+      int index;
+      while ((index = next.getAndIncrement()) < games) {
+        play(index, game, black, white, batch);
+      }
+    } finally {
+      batch.flush();
+      white.setThreads(1);
+    }
+    return null;
+  }
+
+  /**
+   * Plays one game from the starting position and records the result
+   *
+   * @param index the number of the game
+   * @param game the game to play on, overwritten with the starting position
+   * @param black the Black player
+   * @param white the White player
+   * @param batch where this worker's output goes
+   * @throws IOException if the game cannot be recorded
+   */
+  void play(int index, Game game, Black black, White white, ResultWriter.Batch batch)
+      throws IOException {
+    game.setBoard(Board.start());
+    white.newGame();
+    black.random.setSeed(seed + index);
+    int turn = BLACK;
+    int count = 0;
+    boolean done = false;
+    byte played[] = records != null ? new byte[GameRecord.MAX_TURNS] : null;
+
+    while (!done) {
+      long occupied = game.black | game.white;
+      if (turn == BLACK) {
+        game = black.strategy(game, !game.canMove(BLACK), BLACK);
+        turn = WHITE;
+      } else {
+        game = white.strategy(game, !game.canMove(WHITE), WHITE);
+        turn = BLACK;
+      }
+      if (played != null) {
+        long placed = (game.black | game.white) & ~occupied;
+        played[count] = (byte) (placed == 0 ? GameRecord.PASS : Long.numberOfTrailingZeros(placed));
+      }
+      count++;
+
+      if (output >= BOARDS) {
+        batch.println(picture(game));
+        if (turn == BLACK && white.lastSearch() != null) {
+          batch.println("White searched " + white.lastSearch());
+        }
+      }
+
+      // Check if there are any more moves to make
+      done = game.gameOver();
+    }
+    moves.add(count);
+    if (records != null) {
+      records.write(index, GameRecord.RANDOM, GameRecord.ENGINE, seed + index, game, played, count);
+    }
+
+    // The game keeps its disc counts as moves are made
+    int bC = game.count(BLACK);
+    int wC = game.count(WHITE);
+    int result = game.winner();
+    char winner;
+
+    if (result == WHITE) {
+      if (output >= BOARDS) {
+        batch.println(
+            "\n____________________________________\n<<<<White>>>> won with "
+                + wC
+                + "\n____________________________________\n");
+      }
+      whiteWon.increment();
+      winner = 'W';
+    } else if (result == BLACK) {
+      if (output >= BOARDS) {
+        batch.println(
+            "\n____________________________________\n<<<<Black>>>> won with "
+                + bC
+                + "\n____________________________________\n");
+      }
+      blackWon.increment();
+      winner = 'B';
+    } else {
+      ties.increment();
+      winner = 'T';
+    }
+
+    if (output >= GAMES) {
+      batch.println(index + " " + winner + " " + bC + " " + wC + " " + count);
+    }
+  }
+
+  /**
+   * Draws the board as text
+   *
+   * @param game the game to draw
+   * @return the picture of the board
+   */
+  static String picture(Game game) {
+    StringBuilder sb = new StringBuilder("____________________________________\n");
+    for (int i = 1; i < Game.HEIGHT - 1; i++) {
+      sb.append("\n");
+      for (int j = 1; j < Game.WIDTH - 1; j++) {
+        if (game.board[i][j] == BLACK) {
+          sb.append("X\t");
+        } else if (game.board[i][j] == WHITE) {
+          sb.append("O\t");
+        } else {
+          sb.append("-\t");
+        }
+      }
+    }
+    sb.append("\n____________________________________\n");
+    return sb.toString();
+  }
+
+  /** Prints the totals of the tournament, unless the output level is silent */
+  public void printSummary() {
+    if (output < SUMMARY) {
+      return;
+    }
+
+    long whiteWins = whiteWon.sum();
+    System.out.println("===========================");
+    System.out.println("Total number of games = " + games);
+    System.out.println("White won " + whiteWins + " times");
+    System.out.println("Black won " + blackWon.sum() + " times");
+    System.out.println("Number of tied games = " + ties.sum());
+    System.out.println("\nWhite lost " + (games - whiteWins) + " times");
+    System.out.print("Runtime for " + games + " games = ");
+    System.out.println(runTime + " milliseconds");
+    System.out.printf(
+        "%d workers, %.1f games/sec, %.1f moves/sec%n",
+        workers,
+        games * 1000.0 / Math.max(1, runTime),
+        moves.sum() * 1000.0 / Math.max(1, runTime));
+    System.out.println("===========================");
+  }
+}
@@ -0,0 +1,414 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.math3.exception.MaxCountExceededException;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.ConjugateGradient;
+import org.apache.commons.math3.linear.IterativeLinearSolverEvent;
+import org.apache.commons.math3.linear.JacobiPreconditioner;
+import org.apache.commons.math3.linear.RealLinearOperator;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.util.IterationEvent;
+import org.apache.commons.math3.util.IterationListener;
+
+/**
+ * Learns the weights of a PatternEvaluator from self-play. Games are played by a shallow search
+ * with some random moves for variety, and every position is labelled with the disc difference the
+ * player to move finished the game with. The weights are then fitted to the labels by least
+ * squares, so that the pattern entries a position reads add up to its final result.
+ *
+ * <p>Positions are written to a scratch file as they are played, 17 bytes each, and every pass
+ * over them reads the file in chunks on all threads, building the feature vectors again, so the
+ * number of positions is limited by disk rather than by memory.
+ *
+ * <p>There are far too many weights to form the normal equations as a matrix, but each position
+ * only reads one entry per placed pattern. The normal equations are therefore solved with
+ * commons-math3's conjugate gradient on an operator that multiplies by the normal matrix with one
+ * pass over the positions, preconditioned by its diagonal (how often each entry is read). A small
+ * ridge term keeps entries that are rarely or never read near 0.
+ */
+public class Trainer {
+  // Player to move, opponent and final disc difference for the player to move
+  static final int RECORD_BYTES = 17;
+
+  // Positions read at a time by each thread during a pass
+  static final int CHUNK = 4096;
+
+  // Moves at the start of every game that are played at random, and the share of later moves
+  static final int RANDOM_PLIES = 8;
+  static final double EXPLORE = 0.1;
+
+  // Depth the self-play games are searched to
+  static final int PLAY_DEPTH = 2;
+
+  // Added to the diagonal of the normal equations, in squared discs
+  static final double RIDGE = 10;
+
+  // Conjugate gradient stops when the residual is this much smaller than at the start
+  static final double TOLERANCE = 1e-4;
+
+  final Evaluator playing;
+  final int endWeight;
+  final int threads;
+  final int phases;
+  final long seed;
+
+  ExecutorService pool;
+
+  // Scratch file holding the positions, and the number written
+  Path file;
+  long positions = 0;
+
+  /**
+   * Creates a trainer
+   *
+   * @param playing the evaluation the self-play games are searched with
+   * @param endWeight the score of one disc of difference, as in the search's end of game scores
+   * @param threads the number of threads playing games and reading positions
+   * @param phases the number of game phases of the evaluator to train
+   * @param seed the seed of the random moves, so that a run can be repeated
+   */
+  public Trainer(Evaluator playing, int endWeight, int threads, int phases, long seed) {
+    this.playing = playing;
+    this.endWeight = endWeight;
+    this.threads = Math.max(1, threads);
+    this.phases = phases;
+    this.seed = seed;
+  }
+
+  /**
+   * Plays the games, fits the weights and writes them to a file that White can load
+   *
+   * @param weights the file to write the weights to
+   * @param games the number of self-play games
+   * @param iterations the most conjugate gradient iterations
+   * @throws IOException if the scratch file or the weights file cannot be written
+   */
+  public void train(Path weights, int games, int iterations) throws IOException {
+    pool = Executors.newFixedThreadPool(threads);
+    file = Files.createTempFile("othello", ".positions");
+    try {
+      long begin = System.currentTimeMillis();
+      play(games);
+      System.out.printf(
+          "Played %d games, %,d positions in %.1f s%n",
+          games, positions, (System.currentTimeMillis() - begin) / 1e3);
+
+      begin = System.currentTimeMillis();
+      PatternEvaluator fitted = fit(iterations);
+      System.out.printf(
+          "Fitted %,d weights in %.1f s, root mean square error %.2f discs%n",
+          phases * PatternEvaluator.FEATURES,
+          (System.currentTimeMillis() - begin) / 1e3,
+          error(fitted));
+
+      fitted.save(weights);
+    } finally {
+      pool.shutdownNow();
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /** Plays the self-play games on all threads, appending their positions to the scratch file */
+  void play(int games) throws IOException {
+    AtomicInteger next = new AtomicInteger();
+    AtomicLong written = new AtomicLong();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      ArrayList<Callable<double[]>> workers = new ArrayList<Callable<double[]>>();
+      for (int t = 0; t < threads; t++) {
+        workers.add(
+            () -> {
+              Search search = new Search(playing, endWeight, null);
+              ByteBuffer buffer = ByteBuffer.allocate(Board.SQUARES * RECORD_BYTES);
+              for (int g = next.getAndIncrement(); g < games; g = next.getAndIncrement()) {
+                buffer.clear();
+                written.addAndGet(game(search, new Random(seed + g), buffer));
+                buffer.flip();
+                synchronized (channel) {
+                  while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                  }
+                }
+              }
+              return null;
+            });
+      }
+      run(workers);
+    }
+    positions = written.get();
+  }
+
+  /**
+   * Plays one game
+   *
+   * @param search the search choosing the moves
+   * @param random chooses the random moves
+   * @param buffer receives a record for every position where a player had a move
+   * @return the number of positions recorded
+   */
+  static int game(Search search, Random random, ByteBuffer buffer) {
+    Board board = Board.start();
+    int color = Game.BLACK;
+    int movers[] = new int[Board.SQUARES];
+    int count = 0;
+
+    for (int ply = 0; ; ply++) {
+      int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      long moves = board.legalMoves(color);
+      if (moves == 0) {
+        if (board.legalMoves(other) == 0) {
+          break;
+        }
+        color = other;
+        continue;
+      }
+
+      buffer.putLong(board.discs(color)).putLong(board.discs(other)).put((byte) 0);
+      movers[count++] = color;
+
+      int sq;
+      if (ply < RANDOM_PLIES || random.nextDouble() < EXPLORE) {
+        for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+          moves &= moves - 1;
+        }
+        sq = Long.numberOfTrailingZeros(moves);
+      } else {
+        sq = search.bestMove(board, color, PLAY_DEPTH);
+      }
+      board.play(color, sq);
+      color = other;
+    }
+
+    // Fill in the result now that it is known
+    int difference = Long.bitCount(board.black) - Long.bitCount(board.white);
+    for (int i = 0; i < count; i++) {
+      buffer.put(
+          i * RECORD_BYTES + 16, (byte) (movers[i] == Game.BLACK ? difference : -difference));
+    }
+    return count;
+  }
+
+  /**
+   * Solves the regularized normal equations for the weights of every phase at once, they do not
+   * share any weight so the system splits into one block per phase
+   */
+  PatternEvaluator fit(int iterations) {
+    int size = phases * PatternEvaluator.FEATURES;
+
+    // Right hand side: the sum of the results of the positions reading each entry
+    double targets[] =
+        pass(
+            size,
+            (base, features, result, sums) -> {
+              for (int f : features) {
+                sums[base + f] += result;
+              }
+            });
+
+    // Diagonal of the normal matrix: how often each entry is read
+    double diagonal[] =
+        pass(
+            size,
+            (base, features, result, sums) -> {
+              for (int f : features) {
+                sums[base + f]++;
+              }
+            });
+    for (int i = 0; i < size; i++) {
+      diagonal[i] += RIDGE;
+    }
+
+    RealLinearOperator normal =
+        new RealLinearOperator() {
+          @Override
+          public int getRowDimension() {
+            return size;
+          }
+
+          @Override
+          public int getColumnDimension() {
+            return size;
+          }
+
+          @Override
+          public RealVector operate(RealVector x) {
+            double w[] = x.toArray();
+            double product[] =
+                pass(
+                    size,
+                    (base, features, result, sums) -> {
+                      double predicted = 0;
+                      for (int f : features) {
+                        predicted += w[base + f];
+                      }
+                      for (int f : features) {
+                        sums[base + f] += predicted;
+                      }
+                    });
+            for (int i = 0; i < size; i++) {
+              product[i] += RIDGE * w[i];
+            }
+            return new ArrayRealVector(product, false);
+          }
+        };
+
+    ConjugateGradient solver = new ConjugateGradient(iterations, TOLERANCE, false);
+    solver.getIterationManager().addIterationListener(new Progress());
+
+    // The solver improves the solution in place, so running out of iterations still leaves the
+    // best weights found
+    RealVector solution = new ArrayRealVector(size);
+    try {
+      solver.solveInPlace(
+          normal,
+          new JacobiPreconditioner(diagonal, false),
+          new ArrayRealVector(targets, false),
+          solution);
+    } catch (MaxCountExceededException e) {
+      System.out.println("Stopped after " + iterations + " iterations");
+    }
+
+    PatternEvaluator fitted = new PatternEvaluator(phases, endWeight);
+    for (int phase = 0; phase < phases; phase++) {
+      for (int i = 0; i < PatternEvaluator.FEATURES; i++) {
+        double weight = solution.getEntry(phase * PatternEvaluator.FEATURES + i);
+        weight = Math.rint(weight * PatternEvaluator.UNIT);
+        fitted.weights[phase][i] =
+            (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, weight));
+      }
+    }
+    return fitted;
+  }
+
+  /** @return the root mean square difference between the results and what the weights predict */
+  double error(PatternEvaluator fitted) {
+    double total[] =
+        pass(
+            1,
+            (base, features, result, sums) -> {
+              short table[] = fitted.weights[base / PatternEvaluator.FEATURES];
+              int predicted = 0;
+              for (int f : features) {
+                predicted += table[f];
+              }
+              double miss = result - (double) predicted / PatternEvaluator.UNIT;
+              sums[0] += miss * miss;
+            });
+    return positions == 0 ? 0 : Math.sqrt(total[0] / positions);
+  }
+
+  /** What a pass does with one position */
+  interface Visit {
+    /**
+     * @param base the index of the position's phase in the sums
+     * @param features the table entries the position reads, within one phase
+     * @param result the disc difference the player to move finished with
+     * @param sums the sums of the thread
+     */
+    void visit(int base, int features[], int result, double sums[]);
+  }
+
+  /**
+   * Reads every position once, on all threads, each adding into its own sums
+   *
+   * @param size the number of sums
+   * @param visit adds a position to the sums of a thread
+   * @return the sums of all the threads added together
+   */
+  double[] pass(int size, Visit visit) {
+    AtomicLong next = new AtomicLong();
+
+    ArrayList<Callable<double[]>> readers = new ArrayList<Callable<double[]>>();
+    for (int t = 0; t < threads; t++) {
+      readers.add(
+          () -> {
+            double sums[] = new double[size];
+            int features[] = new int[PatternEvaluator.INSTANCES.length];
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK * RECORD_BYTES);
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+              for (long first = next.getAndAdd(CHUNK);
+                  first < positions;
+                  first = next.getAndAdd(CHUNK)) {
+                buffer.clear();
+                buffer.limit((int) Math.min(CHUNK, positions - first) * RECORD_BYTES);
+                long offset = first * RECORD_BYTES;
+                while (buffer.hasRemaining()) {
+                  if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException(file + " ended early");
+                  }
+                }
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                  long player = buffer.getLong();
+                  long opponent = buffer.getLong();
+                  int result = buffer.get();
+                  PatternEvaluator.features(player, opponent, features);
+                  int base =
+                      PatternEvaluator.phase(player, opponent, phases) * PatternEvaluator.FEATURES;
+                  visit.visit(base, features, result, sums);
+                }
+              }
+            }
+            return sums;
+          });
+    }
+
+    double total[] = new double[size];
+    for (double sums[] : run(readers)) {
+      for (int i = 0; i < size; i++) {
+        total[i] += sums[i];
+      }
+    }
+    return total;
+  }
+
+  /** Runs tasks on the pool and waits for all their results */
+  ArrayList<double[]> run(ArrayList<Callable<double[]>> tasks) {
+    try {
+      ArrayList<double[]> results = new ArrayList<double[]>();
+      for (Future<double[]> result : pool.invokeAll(tasks)) {
+        results.add(result.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /** Reports the residual of the conjugate gradient as it goes */
+  static class Progress implements IterationListener {
+    @Override
+    public void initializationPerformed(IterationEvent e) {}
+
+    @Override
+    public void iterationStarted(IterationEvent e) {}
+
+    @Override
+    public void iterationPerformed(IterationEvent e) {
+      System.out.printf(
+          "Iteration %d, residual %.3g%n",
+          e.getIterations(), ((IterativeLinearSolverEvent) e).getNormOfResidual());
+    }
+
+    @Override
+    public void terminationPerformed(IterationEvent e) {}
+  }
+}
@@ -0,0 +1,200 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size hash table of search results, stored off-heap in a direct buffer so it adds nothing
+ * to garbage collection however large it is.
+ *
+ * <p>Entries are two longs: the key exclusive or'ed with the data, then the data. Readers and
+ * writers never lock, and a reader only accepts an entry if the two words still combine into the
+ * key it asked for, so an entry torn by two threads writing at once is seen as a miss rather than
+ * as wrong data. Several searches can therefore share one table.
+ *
+ * <p>Entries are grouped in buckets of four. A store replaces the entry for the same position if
+ * there is one, otherwise the entry with the lowest depth, counting entries left over from earlier
+ * searches as shallower the older they are.
+ */
+public class TranspositionTable {
+  // Kinds of score stored in an entry
+  static final int EXACT = 0;
+  static final int LOWER = 1; // The score is at least the stored score
+  static final int UPPER = 2; // The score is at most the stored score
+
+  static final int ENTRY_BYTES = 16;
+  static final int BUCKET_ENTRIES = 4;
+  static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+
+  // A ByteBuffer holds less than 2 GB, so the largest power of two it can hold is 1 GB
+  static final int MAX_MB = 1024;
+
+  // Layout of the data word, bit 63 marks a used entry so data is never 0
+  static final int DEPTH_SHIFT = 32;
+  static final int FLAG_SHIFT = 40;
+  static final int MOVE_SHIFT = 42;
+  static final int AGE_SHIFT = 49;
+  static final long USED = 1L << 63;
+
+  final ByteBuffer table;
+  final long bucketMask;
+
+  // Incremented at the start of every search so older entries can be replaced first
+  volatile int age = 0;
+
+  final LongAdder probes = new LongAdder();
+  final LongAdder hits = new LongAdder();
+  final LongAdder stores = new LongAdder();
+  final LongAdder collisions = new LongAdder();
+
+  /**
+   * Creates a table
+   *
+   * @param sizeMB the size of the table in megabytes, from 1 to MAX_MB, rounded down to a power of
+   *     two
+   */
+  public TranspositionTable(int sizeMB) {
+    if (sizeMB < 1 || sizeMB > MAX_MB) {
+      throw new IllegalArgumentException(
+          "Table size must be from 1 to " + MAX_MB + " MB, not " + sizeMB);
+    }
+    int bytes = Integer.highestOneBit(sizeMB) << 20;
+    table = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    bucketMask = bytes / BUCKET_BYTES - 1;
+  }
+
+  /** Marks the start of a new search, entries from earlier searches become easier to replace */
+  public void newSearch() {
+    age = (age + 1) & 0xff;
+  }
+
+  /** Empties the table and resets the counters */
+  public void clear() {
+    for (int i = 0; i < table.capacity(); i += 8) {
+      table.putLong(i, 0);
+    }
+    probes.reset();
+    hits.reset();
+    stores.reset();
+    collisions.reset();
+  }
+
+  /**
+   * Looks up a position
+   *
+   * @param key the Zobrist key of the position, including the player to move
+   * @return the data word of the entry, 0 if the position is not in the table
+   */
+  public long probe(long key) {
+    probes.increment();
+    int bucket = (int) ((key & bucketMask) * BUCKET_BYTES);
+
+    for (int i = 0; i < BUCKET_ENTRIES; i++) {
+      int offset = bucket + i * ENTRY_BYTES;
+      long data = table.getLong(offset + 8);
+      if (data != 0 && (table.getLong(offset) ^ data) == key) {
+        hits.increment();
+        return data;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Stores the result of searching a position
+   *
+   * @param key the Zobrist key of the position, including the player to move
+   * @param depth the depth the position was searched to
+   * @param flag EXACT, LOWER or UPPER
+   * @param score the score found by the search
+   * @param move the bit index of the best move, -1 if there is none
+   */
+  public void store(long key, int depth, int flag, int score, int move) {
+    stores.increment();
+    int bucket = (int) ((key & bucketMask) * BUCKET_BYTES);
+    int current = age;
+
+    int victim = -1;
+    int victimValue = Integer.MAX_VALUE;
+    for (int i = 0; i < BUCKET_ENTRIES; i++) {
+      int offset = bucket + i * ENTRY_BYTES;
+      long data = table.getLong(offset + 8);
+
+      // Same position or an unused entry, take it
+      if (data == 0 || (table.getLong(offset) ^ data) == key) {
+        victim = offset;
+        victimValue = Integer.MIN_VALUE;
+        break;
+      }
+
+      // Otherwise prefer shallow entries and entries from old searches
+      int value = depth(data) - 4 * ((current - age(data)) & 0xff);
+      if (value < victimValue) {
+        victim = offset;
+        victimValue = value;
+      }
+    }
+
+    if (victimValue != Integer.MIN_VALUE) {
+      collisions.increment();
+    }
+
+    long data =
+        USED
+            | (score & 0xffffffffL)
+            | ((long) Math.min(Math.max(depth, 0), 0xff) << DEPTH_SHIFT)
+            | ((long) flag << FLAG_SHIFT)
+            | ((long) (move + 1) << MOVE_SHIFT)
+            | ((long) current << AGE_SHIFT);
+    table.putLong(victim, key ^ data);
+    table.putLong(victim + 8, data);
+  }
+
+  /** @return the score of an entry */
+  public static int score(long data) {
+    return (int) data;
+  }
+
+  /** @return the depth of an entry */
+  public static int depth(long data) {
+    return (int) (data >>> DEPTH_SHIFT) & 0xff;
+  }
+
+  /** @return EXACT, LOWER or UPPER */
+  public static int flag(long data) {
+    return (int) (data >>> FLAG_SHIFT) & 0x3;
+  }
+
+  /** @return the bit index of the best move of an entry, -1 if there is none */
+  public static int move(long data) {
+    return ((int) (data >>> MOVE_SHIFT) & 0x7f) - 1;
+  }
+
+  static int age(long data) {
+    return (int) (data >>> AGE_SHIFT) & 0xff;
+  }
+
+  /** @return the number of lookups */
+  public long probes() {
+    return probes.sum();
+  }
+
+  /** @return the number of lookups that found their position */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** @return the number of stores */
+  public long stores() {
+    return stores.sum();
+  }
+
+  /** @return the number of stores that overwrote an entry for a different position */
+  public long collisions() {
+    return collisions.sum();
+  }
+
+  /** @return the size of the table in megabytes */
+  public int sizeMB() {
+    return table.capacity() >> 20;
+  }
+}
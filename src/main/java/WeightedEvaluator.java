@@ -0,0 +1,69 @@
+/**
+ * The position and mobility evaluation used by White, rewritten for bitboards. The position term
+ * sums the point table over each side's discs and the mobility term compares the number of legal
+ * moves of each side.
+ */
+public class WeightedEvaluator implements Evaluator {
+  // Squares grouped by their value in the point table, so a position sum is one popcount per group
+  final int values[];
+  final long masks[];
+
+  final int positionWeight;
+  final int mobilityWeight;
+
+  /**
+   * Creates an evaluator from a point table
+   *
+   * @param pointTable a Game sized table of square values
+   * @param positionWeight the weight of the position term
+   * @param mobilityWeight the weight of the mobility term
+   */
+  public WeightedEvaluator(int[][] pointTable, double positionWeight, double mobilityWeight) {
+    int distinct[] = new int[Board.SQUARES];
+    long groups[] = new long[Board.SQUARES];
+    int count = 0;
+
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      int value = pointTable[Board.row(sq)][Board.column(sq)];
+      int g = 0;
+      while (g < count && distinct[g] != value) {
+        g++;
+      }
+      if (g == count) {
+        distinct[count++] = value;
+      }
+      groups[g] |= 1L << sq;
+    }
+
+    this.values = new int[count];
+    this.masks = new long[count];
+    for (int g = 0; g < count; g++) {
+      values[g] = distinct[g];
+      masks[g] = groups[g];
+    }
+
+    this.positionWeight = (int) positionWeight;
+    this.mobilityWeight = (int) mobilityWeight;
+  }
+
+  /**
+   * Sums the point table over a set of discs
+   *
+   * @param discs the discs to be scored
+   * @return the sum of the values of the squares in discs
+   */
+  public int position(long discs) {
+    int sum = 0;
+    for (int g = 0; g < masks.length; g++) {
+      sum += values[g] * Long.bitCount(discs & masks[g]);
+    }
+    return sum;
+  }
+
+  public int evaluate(long player, long opponent) {
+    int position = position(player) - position(opponent);
+    int mobility =
+        Long.bitCount(Board.moves(player, opponent)) - Long.bitCount(Board.moves(opponent, player));
+    return position * positionWeight + mobility * mobilityWeight;
+  }
+}
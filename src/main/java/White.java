@@ -10,6 +10,7 @@
  */
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 public class White
 {
 	final static int pointTable[][] = new int[Game.WIDTH][Game.HEIGHT];
@@ -22,42 +23,132 @@ public class White
 	// [2][1][1][0]
 	// Credits for values go to: http://www.site-constructor.com/othello/Present/BoardLocationValue.html
 
-	final int CORNER = 50;
-	final int DIAGONAL = -10;
-	final int SECOND = -1;
-	final int THIRD = 5;
-	final int FOURTH = 2;
-	final int COMMON = 1;
-	final int STARTER = 0;
+	final static int CORNER = 50;
+	final static int DIAGONAL = -10;
+	final static int SECOND = -1;
+	final static int THIRD = 5;
+	final static int FOURTH = 2;
+	final static int COMMON = 1;
+	final static int STARTER = 0;
 
 	// Weight values used to determine priorities when examining potential moves
-	final double POSITIONWEIGHT = 5;
-	final double MOBILITYWEIGHT = 15;
-	final double ENDWEIGHT = 300;
+	final static double POSITIONWEIGHT = 5;
+	final static double MOBILITYWEIGHT = 15;
+	final static double ENDWEIGHT = 300;
 
 	// Used to check during minimax algorith
-	final double INFINITE = 100000000;
+	final static double INFINITE = 100000000;
 
 	// Used to determine how large search trees should be
 	// Depth 3 actually performs worse, there is some kind of logic error in my algorithm
 	// Depth 4 doesn't even return anything, I can't tell if it's because of the exponential growth or if there's a bug somewhere
 	final int MAXDEPTH = 2;
 
+	// Most memory the tree kept between moves by searchStrategy may take, in megabytes
+	final static int TREEMEMORY = 64;
+
+	// Depth of the alpha-beta search, which prunes and runs on bitboards so it can look much further
+	final int ALPHABETADEPTH = 8;
+
+	// Default size of the transposition table in megabytes
+	final static int TABLESIZE = 16;
+
+	// Deepest iteration when searching against the clock, a game never has more moves than this
+	final static int MAXITERATIONS = 60;
+
+	// Time the endgame solver may take when there is no clock, and its share of the time of a move
+	// when there is one, the search falling back on what is left if the solver gives up
+	final static long SOLVERMILLIS = 5000;
+	final static double SOLVERSHARE = 0.75;
+
+	// Alpha-beta search using the position, mobility and end weights above
+	Search search;
+	TranspositionTable table;
+
+	// What the search found for the last move it chose, null if the move came from elsewhere
+	SearchResult lastSearch;
+
+	// Time budget of the search, null to search to ALPHABETADEPTH instead
+	TimeManager clock;
+
+	// Runs the search on several threads sharing the table, null to search on the calling thread
+	ParallelSearch parallel;
+
+	// Solves the last moves exactly instead of searching them with the weights
+	EndgameSolver solver;
+
+	// Moves played without searching in known opening positions, null to always search
+	OpeningBook book;
+
+	// The tree of searchStrategy, kept so the next move can reuse it, created when first needed
+	SearchTree tree;
+	int treeMemoryMB = TREEMEMORY;
+
+	// With this many empty squares or fewer the game is solved exactly, or only as a win, draw or loss.
+	// Measured on positions from games between depth 3 searches, one thread, nine per count: exactly,
+	// 18 empties take 0.3 s (at most 0.8 s) and 20 take 1.5 s (at most 5.4 s); as a win or loss, 20
+	// take at most 1.1 s and 21 up to 4.6 s, close to SOLVERMILLIS.
+	int exactEmpties = 18;
+	int winLossEmpties = 20;
+
 	/**
 	 *  Default constructor
 	 */
 	public White()
+	{
+		this(TABLESIZE);
+	}
+
+	/**
+	 *  Creates a player with a transposition table of a given size
+	 *
+	 *  @param    tableSizeMB    the size of the transposition table in megabytes, from 1 to
+	 *                           TranspositionTable.MAX_MB
+	 */
+	public White(int tableSizeMB)
+	{
+		table = new TranspositionTable(tableSizeMB);
+		search = newSearch(defaultEvaluator(), table);
+		solver = new EndgameSolver(table);
+	}
+
+	static
 	{
 		fillPoints();
 	}
 
+	/**
+	 *  @return   the evaluator White searches with unless given another one, scoring the points
+	 *            and mobility of a position with POSITIONWEIGHT and MOBILITYWEIGHT
+	 */
+	public static Evaluator defaultEvaluator()
+	{
+		return new WeightedEvaluator(pointTable, POSITIONWEIGHT, MOBILITYWEIGHT);
+	}
+
+	/**
+	 *  Creates an alpha-beta search set up the way White plays, without its own player, book or
+	 *  solver, for tools that only need the search
+	 *
+	 *  @param    evaluator    scores positions at the search horizon
+	 *  @param    table        the transposition table, null to search without one
+	 *  @return   a search with move ordering and principal variation search
+	 */
+	public static Search newSearch(Evaluator evaluator, TranspositionTable table)
+	{
+		Search search = new Search(evaluator, ENDWEIGHT, table);
+		search.order = new MoveOrder(pointTable);
+		search.pvs = true;
+		return search;
+	}
+
 	/**
 	 *  Manually fills in the points board, which is used for a simple point-based strategy
      *  Only supports 8 x 8 board
 	 *
      *  @return   void
 	 */
-	public void fillPoints()
+	public static void fillPoints()
 	{
 		// Set values for the top left quadrant
 		pointTable[1][1] = CORNER;
@@ -94,6 +185,172 @@ public class White
 		}
 	}
 
+	/**
+	 *  Gives every move the same amount of time, searching as deep as it allows
+	 *
+	 *  @param    millis    the time for each move in milliseconds
+	 */
+	public void setTimePerMove(long millis)
+	{
+		clock = new TimeManager(millis, 0);
+	}
+
+	/**
+	 *  Shares a time budget for the whole game between the moves, depending on the game phase
+	 *
+	 *  @param    millis    the time for each game in milliseconds
+	 */
+	public void setTimePerGame(long millis)
+	{
+		clock = new TimeManager(0, millis);
+	}
+
+	/**
+	 *  Sets how many threads search each move
+	 *
+	 *  @param    threads    the number of threads, 1 to search on the calling thread only
+	 */
+	public void setThreads(int threads)
+	{
+		if (parallel != null)
+		{
+			parallel.shutdown();
+		}
+		parallel = threads > 1 ? new ParallelSearch(search, threads) : null;
+	}
+
+	/**
+	 *  Replaces the evaluation of the alpha-beta search, for example with a PatternEvaluator loaded
+	 *  from a weights file. The transposition table is cleared since its scores no longer apply.
+	 *
+	 *  @param    evaluator    scores positions at the search horizon
+	 */
+	public void setEvaluator(Evaluator evaluator)
+	{
+		int threads = parallel == null ? 1 : parallel.threads();
+		table.clear();
+		Search old = search;
+		search = newSearch(evaluator, table);
+		search.probCut = old.probCut;
+		search.selectivity = old.selectivity;
+		search.pvs = old.pvs;
+		search.cancelled = old.cancelled;
+		setThreads(threads);
+	}
+
+	/**
+	 *  Chooses between principal variation search with aspiration windows, the default, and a
+	 *  plain alpha-beta search with a full window
+	 *
+	 *  @param    pvs    true for principal variation search
+	 */
+	public void setPrincipalVariationSearch(boolean pvs)
+	{
+		search.pvs = pvs;
+	}
+
+	/**
+	 *  @return   the best move, score, depth and principal variation of the last move chosen by
+	 *            the alpha-beta search, null if the last move came from the book or the solver
+	 */
+	public SearchResult lastSearch()
+	{
+		return lastSearch;
+	}
+
+	/**
+	 *  Lets the alpha-beta search cut nodes whose deep score a shallow search predicts well enough.
+	 *  The calibration must have been made with the evaluator in use.
+	 *
+	 *  @param    probCut        the calibration, null to search at full width
+	 *  @param    selectivity    0 never to cut, up to ProbCut.CONFIDENCE.length - 1 to cut the most
+	 */
+	public void setProbCut(ProbCut probCut, int selectivity)
+	{
+		search.probCut = probCut;
+		search.selectivity = Math.max(0, Math.min(selectivity, ProbCut.CONFIDENCE.length - 1));
+		table.clear();
+	}
+
+	/**
+	 *  Sets the opening book consulted before searching
+	 *
+	 *  @param    book    the book, null to always search
+	 */
+	public void setBook(OpeningBook book)
+	{
+		this.book = book;
+	}
+
+	/**
+	 *  Sets how close to the end of the game the endgame solver takes over from the search
+	 *
+	 *  @param    exact       empty squares left when the exact disc difference is solved, 0 never to
+	 *                        solve exactly
+	 *  @param    winLoss     empty squares left when the game is solved as a win, draw or loss
+	 */
+	public void setEndgameEmpties(int exact, int winLoss)
+	{
+		exactEmpties = exact;
+		winLossEmpties = Math.max(exact, winLoss);
+	}
+
+	/**
+	 *  Sets how much memory the tree kept between moves by searchStrategy may take. A move whose
+	 *  tree would not fit is searched with a tree of Nodes that is thrown away afterwards.
+	 *
+	 *  @param    megabytes    the memory cap, 0 never to keep the tree
+	 */
+	public void setTreeMemory(int megabytes)
+	{
+		treeMemoryMB = megabytes;
+		tree = null;
+	}
+
+	/**
+	 *  Asks a move being computed on another thread to finish as soon as possible. The alpha-beta
+	 *  search and the endgame solver stop within a few thousand nodes, the move returned is then
+	 *  the best found so far. A stop that comes before the move is started is lost, use setCancel
+	 *  for that.
+	 */
+	public void stop()
+	{
+		search.stop();
+		solver.stop();
+		if (parallel != null)
+		{
+			parallel.stop();
+		}
+	}
+
+	/**
+	 *  Ties the moves asked for from now on to a request that may be abandoned. Once cancelled is
+	 *  set, every search and solve of the request stops, including those not started yet, so a
+	 *  request cancelled while it waits for its thread does no work when it gets there.
+	 *
+	 *  @param    cancelled    set to abandon the request, null for moves that are never abandoned
+	 */
+	public void setCancel(AtomicBoolean cancelled)
+	{
+		search.cancelled = cancelled;
+		solver.cancelled = cancelled;
+	}
+
+	/**
+	 *  Gets ready for a new game
+	 */
+	public void newGame()
+	{
+		if (clock != null)
+		{
+			clock.newGame();
+		}
+		if (tree != null)
+		{
+			tree.clear();
+		}
+	}
+
     /**
      *  This method calls the appropriate strategy.
      *
@@ -105,7 +362,7 @@ public class White
      */
     public Game strategy(Game game, boolean done, int color) {
 
-        return searchStrategy(game,done,color);
+        return alphaBetaStrategy(game,done,color);
     }
 
     /**
@@ -122,14 +379,11 @@ public class White
         int row = (int)(Math.random()*(game.HEIGHT-2)) + 1;
         int column = (int)(Math.random()*(game.WIDTH-2)) + 1;
 
-        while (!done && !game.legalMove(row,column,color,true)) {
+        while (!done && game.play(row,column,color) == 0) {
             row = (int)(Math.random()*(game.HEIGHT-2)) + 1;
             column = (int)(Math.random()*(game.WIDTH-2)) + 1;
         }
 
-        if (!done)
-            game.board[row][column] = color;
-
         return game;
     }
 
@@ -172,8 +426,7 @@ public class White
 
 			if (bestMove.legal)
 			{
-				game.pointMove(bestMove.y, bestMove.x, color, true, pointTable);
-				game.board[bestMove.y][bestMove.x] = color;
+				game.play(bestMove.y, bestMove.x, color);
 			}
 		}
 
@@ -191,10 +444,40 @@ public class White
      */
 	public Game searchStrategy(Game game, boolean done, int color)
 	{
+		return searchStrategy(game, done, color, MAXDEPTH);
+	}
+
+	/**
+     *  Take a turn using a search based strategy that makes use of cell points
+     *
+     *  @param    game    the current state of the game
+     *  @param    done    true if the player cannot move anywhere
+     *  @param    color   the color (Black or White) of the player
+     *  @param    depth   the depth of the search tree
+     *
+     *  @return   game    the resulting state of the game
+     */
+	public Game searchStrategy(Game game, boolean done, int color, int depth)
+	{
+		if (!done && treeMemoryMB > 0)
+		{
+			// Build on the tree of the previous move where it is still reachable
+			if (tree == null)
+			{
+				tree = new SearchTree(treeMemoryMB);
+			}
+			int best = tree.bestMove(game, color, depth);
+			if (best != -1)
+			{
+				game.play(Board.row(best), Board.column(best), color);
+				return game;
+			}
+		}
+
 		if (!done)
 		{
 			Node currentState = new Node(new Move(), game, color);
-			currentState = buildTree(currentState, MAXDEPTH);
+			currentState = buildTree(currentState, depth);
 			//printTree(currentState);
 
 			Move bestMove = minimax(currentState, color);
@@ -202,14 +485,234 @@ public class White
 
 			if (bestMove.legal)
 			{
-				game.pointMove(bestMove.y, bestMove.x, color, true, pointTable);
-				game.board[bestMove.y][bestMove.x] = color;
+				game.play(bestMove.y, bestMove.x, color);
+			}
+		}
+
+		return game;
+	}
+
+	/**
+     *  Take a turn using an alpha-beta search over bitboards, either to a fixed depth or against
+     *  the clock if a time budget has been set, unless the position is in the opening book or
+     *  close enough to the end to be solved
+     *
+     *  @param    game    the current state of the game
+     *  @param    done    true if the player cannot move anywhere
+     *  @param    color   the color (Black or White) of the player
+     *
+     *  @return   game    the resulting state of the game
+     */
+	public Game alphaBetaStrategy(Game game, boolean done, int color)
+	{
+		lastSearch = null;
+		if (!done)
+		{
+			Board position = game.toBoard();
+			int empties = Long.bitCount(position.empty());
+			int best = book == null ? -1 : book.lookup(position, color);
+
+			// One hard limit for the whole move, whether it is solved, searched or both
+			long begin = System.currentTimeMillis();
+			long hard = clock == null ? Long.MAX_VALUE : clock.allocate(empties);
+
+			// Near the end, solve the game instead, falling back to the search if it takes too long
+			if (best == -1 && empties <= winLossEmpties)
+			{
+				long limit = clock == null ? SOLVERMILLIS : Math.max(1, (long) (hard * SOLVERSHARE));
+				boolean exact = empties <= exactEmpties;
+				best = solver.bestMove(position, color, exact, limit);
+
+				// Every move loses against perfect play, the search finds the one that makes it hardest
+				if (!exact && best != -1 && solver.score < 0)
+				{
+					best = -1;
+				}
+			}
+
+			if (best != -1)
+			{
+				// Found in the book or solved, nothing left to search
+			}
+			else if (clock == null)
+			{
+				if (parallel == null)
+				{
+					best = search.bestMove(position, color, ALPHABETADEPTH);
+					lastSearch = search.result();
+				}
+				else
+				{
+					best = parallel.iterate(position, color, ALPHABETADEPTH, Long.MAX_VALUE, Long.MAX_VALUE);
+					lastSearch = parallel.result();
+				}
+			}
+			else
+			{
+				// Deepen until the time left of what the clock gave this move runs out
+				long left = Math.max(1, hard - (System.currentTimeMillis() - begin));
+				if (parallel == null)
+				{
+					best = search.iterate(position, color, MAXITERATIONS, clock.soft(left), left);
+					lastSearch = search.result();
+				}
+				else
+				{
+					best = parallel.iterate(position, color, MAXITERATIONS, clock.soft(left), left);
+					lastSearch = parallel.result();
+				}
+			}
+
+			if (clock != null)
+			{
+				clock.used(System.currentTimeMillis() - begin);
+			}
+
+			if (best != -1)
+			{
+				int row = Board.row(best);
+				int column = Board.column(best);
+				game.play(row, column, color);
+			}
+		}
+
+		return game;
+	}
+
+	/**
+     *  Take a turn using the same search as searchStrategy, but explored depth first on the game
+     *  itself instead of through a tree of Nodes
+     *
+     *  @param    game    the current state of the game
+     *  @param    done    true if the player cannot move anywhere
+     *  @param    color   the color (Black or White) of the player
+     *
+     *  @return   game    the resulting state of the game
+     */
+	public Game depthFirstStrategy(Game game, boolean done, int color)
+	{
+		if (!done)
+		{
+			Move bestMove = depthFirst(game, color, MAXDEPTH);
+
+			if (bestMove.legal)
+			{
+				game.play(bestMove.y, bestMove.x, color);
 			}
 		}
 
 		return game;
 	}
 
+	/**
+     *  Finds the move minimax would pick from a tree built by buildTree, without building the tree.
+     *  Each move is made on the game in place and taken back with its recorded flips, so memory
+     *  only grows with the depth.
+     *
+	 *  @param    game     The game to search, unchanged when the method returns
+	 *	@param	  color    the player who is making the decision
+     *  @param    depth    How many moves to look ahead
+	 *
+	 *  @return   best     the best course of action as indicated by minimax
+     */
+	public Move depthFirst(Game game, int color, int depth)
+	{
+		double max = 0;
+		Move bestMove = new Move();
+		int nextTurn = (color == Game.BLACK) ? Game.WHITE : Game.BLACK;
+
+		for (int i = 1; i <= 8; i++)
+		{
+			for (int j = 1; j <= 8; j++)
+			{
+				Move currentMove = game.pointMove(i, j, color, false, pointTable);
+
+				if (currentMove.legal)
+				{
+					long flipped = game.play(i, j, color);
+					double tempMin = depthFirstValue(game, nextTurn, currentMove.points, depth - 1, true, color);
+					game.undo(i, j, color, flipped);
+
+					if (!bestMove.legal || tempMin > max)
+					{
+						max = tempMin;
+						bestMove = currentMove;
+					}
+				}
+			}
+		}
+
+		return bestMove;
+	}
+
+	/**
+     *  Calculates the min-value or max-value of the game as minValue and maxValue would for the
+     *  equivalent Node
+     *
+	 *  @param    game        The game reached by the last move
+	 *  @param    turn        The player whose turn it is
+	 *  @param    position    The points acquired by the last move
+     *  @param    depth       How many moves are left to look ahead
+	 *  @param    minimizing  true for the min-value, false for the max-value
+	 *	@param	  color       the player who is making the decision
+	 *
+	 *  @return   value       the min-value or max-value of the game
+     */
+	double depthFirstValue(Game game, int turn, int position, int depth, boolean minimizing, int color)
+	{
+		int end = endCheck(game);
+
+		// Expand the same way buildTree would
+		if (depth > 0 && end == -1)
+		{
+			int nextTurn = (turn == Game.BLACK) ? Game.WHITE : Game.BLACK;
+			double value = minimizing ? INFINITE : -INFINITE;
+			boolean expanded = false;
+
+			for (int i = 1; i <= 8; i++)
+			{
+				for (int j = 1; j <= 8; j++)
+				{
+					Move currentMove = game.pointMove(i, j, turn, false, pointTable);
+
+					if (currentMove.legal)
+					{
+						long flipped = game.play(i, j, turn);
+						double temp = depthFirstValue(game, nextTurn, currentMove.points, depth - 1, !minimizing, color);
+						game.undo(i, j, turn, flipped);
+
+						expanded = true;
+						if (minimizing ? temp < value : temp > value)
+						{
+							value = temp;
+						}
+					}
+				}
+			}
+
+			if (expanded)
+			{
+				return value;
+			}
+		}
+
+		// This game is a leaf
+		if (end == -1)
+		{
+			int mobility = mobilityCheck(game, turn);
+			if (minimizing)
+			{
+				return position * POSITIONWEIGHT - mobility * MOBILITYWEIGHT;
+			}
+			return -position * POSITIONWEIGHT + mobility * MOBILITYWEIGHT;
+		}
+		else if (end == color)
+		{
+			return ENDWEIGHT;
+		}
+		return -ENDWEIGHT;
+	}
+
 	/**
      *  Creates a tree to explore potential moves
      *
@@ -436,8 +939,7 @@ public class White
 		{
 			if (move.legal)
 			{
-				game.pointMove(move.y, move.x, color, true, pointTable);
-				game.board[move.y][move.x] = color;
+				game.play(move.y, move.x, color);
 			}
 		}
 
@@ -454,18 +956,8 @@ public class White
      */
     public int mobilityCheck(Game game, int color)
 	{
-		int result = 0;
-
-		for (int i=1; i<game.HEIGHT-1; i++)
-		{
-            for (int j=1; j<game.WIDTH-1; j++)
-			{
-				if ((game.legalMove(i, j, color, false)))
-				{
-                    result++;
-				}
-			}
-		}
+		// Generate every legal move at once and count them
+		int result = Long.bitCount(game.legalMoves(color));
 
         return result;
     }
@@ -479,44 +971,8 @@ public class White
      */
     public int endCheck(Game game)
 	{
-		int result = -1;
-		int whiteSum = 0;
-		int blackSum = 0;
-
-		for (int i=1; i<game.HEIGHT-1; i++)
-		{
-            for (int j=1; j<game.WIDTH-1; j++)
-			{
-				if ((game.legalMove(i, j, Game.BLACK, false)) ||
-                   (game.legalMove(i, j, Game.WHITE, false)))
-				{
-                    result = -1;
-					return result;
-				}
-
-				if (game.board[i][j] == Game.BLACK)
-				{
-					blackSum++;
-				}
-				else if (game.board[i][j] == Game.WHITE)
-				{
-					whiteSum++;
-				}
-			}
-		}
-
-		if (blackSum > whiteSum)
-		{
-			result = Game.BLACK;
-		}
-		else if (whiteSum > blackSum)
-		{
-			result = Game.WHITE;
-		}
-		else
-		{
-			result = 0;
-		}
+		// The game keeps its disc counts and legal moves up to date, so this needs no scan
+		int result = game.winner();
 
         return result;
     }
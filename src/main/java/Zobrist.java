@@ -0,0 +1,84 @@
+/**
+ * Zobrist keys for hashing positions. A position's hash is the exclusive or of one random key per
+ * disc, so playing a move only has to toggle the keys of the placed and flipped discs. The keys
+ * come from a fixed seed so hashes stay the same between runs, which files keyed by position hash
+ * rely on.
+ */
+public class Zobrist {
+  // KEYS[color][sq] is the key of a disc of color on square sq, row 0 is unused
+  static final long KEYS[][] = new long[3][Board.SQUARES];
+
+  // FLIP[sq] changes a disc on sq from one color to the other
+  static final long FLIP[] = new long[Board.SQUARES];
+
+  // Distinguishes White to move from Black to move in the same position
+  static final long SIDE;
+
+  static {
+    long seed = 0x5eed0f07e11011L;
+    for (int color = Game.BLACK; color <= Game.WHITE; color++) {
+      for (int sq = 0; sq < Board.SQUARES; sq++) {
+        seed += 0x9e3779b97f4a7c15L;
+        KEYS[color][sq] = mix(seed);
+      }
+    }
+    for (int sq = 0; sq < Board.SQUARES; sq++) {
+      FLIP[sq] = KEYS[Game.BLACK][sq] ^ KEYS[Game.WHITE][sq];
+    }
+    seed += 0x9e3779b97f4a7c15L;
+    SIDE = mix(seed);
+  }
+
+  /** SplitMix64 finalizer, spreads a counter into well mixed random bits */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Hashes a position from scratch
+   *
+   * @param black the squares occupied by Black
+   * @param white the squares occupied by White
+   * @return the hash of the position
+   */
+  public static long hash(long black, long white) {
+    long hash = 0;
+    while (black != 0) {
+      hash ^= KEYS[Game.BLACK][Long.numberOfTrailingZeros(black)];
+      black &= black - 1;
+    }
+    while (white != 0) {
+      hash ^= KEYS[Game.WHITE][Long.numberOfTrailingZeros(white)];
+      white &= white - 1;
+    }
+    return hash;
+  }
+
+  /**
+   * Computes how a hash changes when a move is played or taken back
+   *
+   * @param color the player making the move
+   * @param sq the bit index of the move
+   * @param flipped the discs flipped by the move
+   * @return the value to exclusive or into the hash
+   */
+  public static long move(int color, int sq, long flipped) {
+    long delta = KEYS[color][sq];
+    while (flipped != 0) {
+      delta ^= FLIP[Long.numberOfTrailingZeros(flipped)];
+      flipped &= flipped - 1;
+    }
+    return delta;
+  }
+
+  /**
+   * @param hash the hash of a position
+   * @param color the player to move
+   * @return a key for the position with color to move
+   */
+  public static long key(long hash, int color) {
+    return color == Game.WHITE ? hash ^ SIDE : hash;
+  }
+}
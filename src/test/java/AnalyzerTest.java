@@ -0,0 +1,117 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Analyzes a few recorded games, including a run that is continued after being cut short. */
+public class AnalyzerTest {
+  static final int GAMES = 6;
+  static final int DEPTH = 2;
+
+  Path folder;
+  Path games;
+  Path output;
+
+  @Before
+  public void writeGames() throws IOException {
+    folder = Files.createTempDirectory("analyzer");
+    games = folder.resolve("games.ogr");
+    output = folder.resolve("games.ogr.analysis");
+    try (GameRecordWriter writer = new GameRecordWriter(games)) {
+      for (int i = 0; i < GAMES; i++) {
+        new GameArchiveTest.Played(i, 2000 + i).write(writer);
+      }
+    }
+  }
+
+  @After
+  public void deleteFolder() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+      for (Path path : files) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(folder);
+  }
+
+  Analyzer analyzer() throws IOException {
+    return new Analyzer(
+        new GameArchive(games), White.defaultEvaluator(), (int) White.ENDWEIGHT, DEPTH, 2);
+  }
+
+  String read() throws IOException {
+    return new String(Files.readAllBytes(output), StandardCharsets.US_ASCII);
+  }
+
+  void write(String text) throws IOException {
+    Files.write(output, text.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void continuesARunCutShort() throws IOException {
+    analyzer().analyze(output);
+    String full = read();
+    assertTrue(full.startsWith(Analyzer.HEADER + "\n"));
+    assertEquals(GAMES, analyzer().resume(output).cardinality());
+
+    // Cut in the middle of the third game's block. The games finished before are kept as they
+    // were and the others are searched again, with scores that may differ as the tables differ.
+    int second = full.indexOf("\n= ", full.indexOf("\n= ") + 1);
+    String kept = full.substring(0, full.indexOf('\n', second + 1) + 1);
+    write(full.substring(0, full.indexOf("\n= ", second + 1) - 5));
+    analyzer().analyze(output);
+    String continued = read();
+    assertTrue(continued.startsWith(kept));
+    assertEquals(full.split("\n").length, continued.split("\n").length);
+    BitSet done = analyzer().resume(output);
+    assertEquals(GAMES, done.cardinality());
+    assertEquals(continued, read());
+  }
+
+  @Test
+  public void resumeSkipsAnUnfinishedLastLine() throws IOException {
+    write(Analyzer.HEADER + "\n3 0 X d3 d3 0 0 0\n= 3 1 0\n4 0 X d3 d3 0 0 0\n= 4 1 0");
+    BitSet done = analyzer().resume(output);
+    assertEquals(1, done.cardinality());
+    assertTrue(done.get(3));
+    assertEquals(Analyzer.HEADER + "\n3 0 X d3 d3 0 0 0\n= 3 1 0\n", read());
+  }
+
+  @Test
+  public void resumeReportsADamagedLine() throws IOException {
+    write(Analyzer.HEADER + "\n= x 1 0\n");
+    try {
+      analyzer().resume(output);
+      fail("Accepted a damaged output");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("line 2"));
+    }
+  }
+
+  @Test
+  public void reportsADamagedGame() throws IOException {
+    // The first move of the second game is replaced by a square that is not legal at the start
+    long second = new GameArchive(games).offsets.get(1);
+    try (FileChannel channel = FileChannel.open(games, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0}), second + GameRecord.HEADER_BYTES);
+    }
+    try {
+      analyzer().analyze(output);
+      fail("Analyzed a damaged game");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("illegal move at turn 0"));
+    }
+  }
+}
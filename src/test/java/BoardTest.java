@@ -0,0 +1,208 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks the bitboard move generation of Board against the direction walks of Game on positions
+ * reached by random play.
+ */
+public class BoardTest {
+  static final int GAMES = 200;
+
+  /**
+   * Plays random games and calls check on every position reached, for both players
+   *
+   * @param check the check to run on each position
+   */
+  static void randomPositions(PositionCheck check) {
+    Random random = new Random(1);
+    int list[] = new int[Board.SQUARES];
+    for (int g = 0; g < GAMES; g++) {
+      Board board = Board.start();
+      int color = Game.BLACK;
+      while (!board.gameOver()) {
+        check.check(board, Game.BLACK);
+        check.check(board, Game.WHITE);
+        int count = Board.moveList(board.legalMoves(color), list);
+        if (count > 0) {
+          board.play(color, list[random.nextInt(count)]);
+        }
+        color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      }
+    }
+  }
+
+  interface PositionCheck {
+    void check(Board board, int color);
+  }
+
+  @Test
+  public void movesMatchLegalMove() {
+    randomPositions(
+        (board, color) -> {
+          Game game = new Game();
+          game.setBoard(board);
+          long expected = 0;
+          for (int r = 1; r <= Board.SIZE; r++) {
+            for (int c = 1; c <= Board.SIZE; c++) {
+              if (game.legalMove(r, c, color, false)) {
+                expected |= 1L << Board.square(r, c);
+              }
+            }
+          }
+          assertEquals(expected, board.legalMoves(color));
+        });
+  }
+
+  @Test
+  public void movesMatchPointMove() {
+    randomPositions(
+        (board, color) -> {
+          Game game = new Game();
+          game.setBoard(board);
+          long moves = board.legalMoves(color);
+          for (int r = 1; r <= Board.SIZE; r++) {
+            for (int c = 1; c <= Board.SIZE; c++) {
+              boolean legal = (moves & (1L << Board.square(r, c))) != 0;
+              assertEquals(legal, game.pointMove(r, c, color, false, White.pointTable).legal);
+            }
+          }
+        });
+  }
+
+  /** @return the discs a move on the matrix flips, walking each direction from the square */
+  static long walk(Game game, int r, int c, int color) {
+    long flipped = 0;
+    if (game.board[r][c] != Game.EMPTY) {
+      return 0;
+    }
+    for (int dr = -1; dr <= 1; dr++) {
+      for (int dc = -1; dc <= 1; dc++) {
+        long line = 0;
+        int i = r + dr;
+        int j = c + dc;
+        while ((dr != 0 || dc != 0)
+            && game.board[i][j] != -1
+            && game.board[i][j] != Game.EMPTY
+            && game.board[i][j] != color) {
+          line |= 1L << Board.square(i, j);
+          i += dr;
+          j += dc;
+        }
+        if (line != 0 && game.board[i][j] == color) {
+          flipped |= line;
+        }
+      }
+    }
+    return flipped;
+  }
+
+  @Test
+  public void flipsMatchLegalMove() {
+    randomPositions(
+        (board, color) -> {
+          int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+          long player = board.discs(color);
+          long opponent = board.discs(other);
+          for (int sq = 0; sq < Board.SQUARES; sq++) {
+            Game game = new Game();
+            game.setBoard(board);
+            int r = Board.row(sq);
+            int c = Board.column(sq);
+            long expected = walk(game, r, c, color);
+            assertEquals(expected, Board.flips(player, opponent, sq));
+
+            // A legal move made by legalMove keeps the matrix and the bitboards in step
+            assertEquals(expected != 0, game.legalMove(r, c, color, true));
+            Board after = new Board(board);
+            if (expected != 0) {
+              after.play(color, sq);
+            }
+            assertEquals(after.discs(Game.BLACK), game.black);
+            assertEquals(after.discs(Game.WHITE), game.white);
+            for (int i = 1; i <= Board.SIZE; i++) {
+              for (int j = 1; j <= Board.SIZE; j++) {
+                long bit = 1L << Board.square(i, j);
+                int expectedColor =
+                    (after.black & bit) != 0
+                        ? Game.BLACK
+                        : (after.white & bit) != 0 ? Game.WHITE : Game.EMPTY;
+                assertEquals(expectedColor, game.board[i][j]);
+              }
+            }
+          }
+        });
+  }
+
+  @Test
+  public void playMatchesGame() {
+    randomPositions(
+        (board, color) -> {
+          long moves = board.legalMoves(color);
+          while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            Game game = new Game();
+            game.setBoard(board);
+            Board after = new Board(board);
+            long flipped = after.play(color, sq);
+            assertEquals(flipped, game.play(Board.row(sq), Board.column(sq), color));
+            assertEquals(after.discs(Game.BLACK), game.toBoard().discs(Game.BLACK));
+            assertEquals(after.discs(Game.WHITE), game.toBoard().discs(Game.WHITE));
+
+            after.undo(color, sq, flipped);
+            assertEquals(board.discs(Game.BLACK), after.discs(Game.BLACK));
+            assertEquals(board.discs(Game.WHITE), after.discs(Game.WHITE));
+          }
+        });
+  }
+
+  /** Checks the counts and status Game keeps against the same position worked out from scratch */
+  static void checkStatus(Game game) {
+    Board board = game.toBoard();
+    assertEquals(Long.bitCount(board.black), game.count(Game.BLACK));
+    assertEquals(Long.bitCount(board.white), game.count(Game.WHITE));
+    assertEquals(Long.bitCount(board.empty()), game.empties);
+    assertEquals(board.legalMoves(Game.BLACK) != 0, game.canMove(Game.BLACK));
+    assertEquals(board.legalMoves(Game.WHITE) != 0, game.canMove(Game.WHITE));
+    assertEquals(board.gameOver(), game.gameOver());
+    int difference = Long.bitCount(board.black) - Long.bitCount(board.white);
+    int winner = difference > 0 ? Game.BLACK : difference < 0 ? Game.WHITE : 0;
+    assertEquals(board.gameOver() ? winner : -1, game.winner());
+  }
+
+  @Test
+  public void statusFollowsPlayAndUndo() {
+    Random random = new Random(2);
+    int list[] = new int[Board.SQUARES];
+    for (int g = 0; g < GAMES; g++) {
+      Game game = new Game(Board.start());
+      int squares[] = new int[Board.SQUARES];
+      int colors[] = new int[Board.SQUARES];
+      long flips[] = new long[Board.SQUARES];
+      int moves = 0;
+      int color = Game.BLACK;
+      checkStatus(game);
+      while (!game.gameOver()) {
+        int count = Board.moveList(game.legalMoves(color), list);
+        if (count > 0) {
+          int sq = list[random.nextInt(count)];
+          squares[moves] = sq;
+          colors[moves] = color;
+          flips[moves++] = game.play(Board.row(sq), Board.column(sq), color);
+          checkStatus(game);
+        }
+        color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      }
+      while (moves > 0) {
+        moves--;
+        int sq = squares[moves];
+        game.undo(Board.row(sq), Board.column(sq), colors[moves], flips[moves]);
+        checkStatus(game);
+      }
+      assertEquals(Board.start().black, game.black);
+      assertEquals(Board.start().white, game.white);
+    }
+  }
+}
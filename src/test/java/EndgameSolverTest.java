@@ -0,0 +1,121 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+
+/** Compares the scores and moves of EndgameSolver with a plain minimax to the end of the game. */
+public class EndgameSolverTest {
+  static final int POSITIONS = 60;
+  static final int MAX_EMPTIES = 10;
+
+  /** A position with moves for the player to move */
+  static class Position {
+    final Board board;
+    final int color;
+
+    Position(Board board, int color) {
+      this.board = new Board(board);
+      this.color = color;
+    }
+  }
+
+  /** @return positions with 4 to MAX_EMPTIES empties reached by random play */
+  static ArrayList<Position> positions() {
+    ArrayList<Position> positions = new ArrayList<Position>();
+    Random random = new Random(3);
+    int list[] = new int[Board.SQUARES];
+    while (positions.size() < POSITIONS) {
+      Board board = Board.start();
+      int color = Game.BLACK;
+      int empties = 4 + random.nextInt(MAX_EMPTIES - 3);
+      while (!board.gameOver() && Long.bitCount(board.empty()) > empties) {
+        int count = Board.moveList(board.legalMoves(color), list);
+        if (count > 0) {
+          board.play(color, list[random.nextInt(count)]);
+        }
+        color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      }
+      if (board.legalMoves(color) != 0) {
+        positions.add(new Position(board, color));
+      }
+    }
+    return positions;
+  }
+
+  /** @return the final disc difference for player with best play from both sides */
+  static int minimax(long player, long opponent, boolean passed) {
+    long moves = Board.moves(player, opponent);
+    if (moves == 0) {
+      if (passed || (player | opponent) == -1L) {
+        return EndgameSolver.difference(player, opponent);
+      }
+      return -minimax(opponent, player, true);
+    }
+    int best = -EndgameSolver.MAX_SCORE;
+    for (; moves != 0; moves &= moves - 1) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      long flipped = Board.flips(player, opponent, sq);
+      best = Math.max(best, -minimax(opponent & ~flipped, player | flipped | (1L << sq), false));
+    }
+    return best;
+  }
+
+  /** @return the final disc difference for color after playing sq */
+  static int after(Position position, int sq) {
+    int other = position.color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    long player = position.board.discs(position.color);
+    long opponent = position.board.discs(other);
+    long flipped = Board.flips(player, opponent, sq);
+    return -minimax(opponent & ~flipped, player | flipped | (1L << sq), false);
+  }
+
+  static void check(EndgameSolver solver) {
+    for (Position position : positions()) {
+      int other = position.color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      int expected =
+          minimax(position.board.discs(position.color), position.board.discs(other), false);
+
+      int move = solver.bestMove(position.board, position.color, true, Long.MAX_VALUE);
+      assertTrue((position.board.legalMoves(position.color) & (1L << move)) != 0);
+      assertEquals(expected, solver.score);
+      assertEquals(expected, after(position, move));
+
+      move = solver.bestMove(position.board, position.color, false, Long.MAX_VALUE);
+      assertEquals(Integer.signum(expected), Integer.signum(solver.score));
+      assertEquals(Integer.signum(expected), Integer.signum(after(position, move)));
+    }
+  }
+
+  @Test
+  public void solvesWithoutTable() {
+    check(new EndgameSolver(null));
+  }
+
+  @Test
+  public void solvesWithTable() {
+    check(new EndgameSolver(new TranspositionTable(1)));
+  }
+
+  @Test
+  public void whiteSearchesWhenEveryMoveLoses() {
+    White white = new White(1);
+    white.setEndgameEmpties(0, MAX_EMPTIES);
+    for (Position position : positions()) {
+      int other = position.color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      int expected =
+          minimax(position.board.discs(position.color), position.board.discs(other), false);
+      Game game = new Game();
+      game.setBoard(position.board);
+      white.alphaBetaStrategy(game, false, position.color);
+      if (expected < 0) {
+        assertNotNull(white.lastSearch());
+      } else {
+        assertNull(white.lastSearch());
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes random games with GameRecordWriter and reads them back with GameArchive, including after
+ * a run that was cut short.
+ */
+public class GameArchiveTest {
+  Path folder;
+  Path file;
+
+  @Before
+  public void createFolder() throws IOException {
+    folder = Files.createTempDirectory("archive");
+    file = folder.resolve("games.ogr");
+  }
+
+  @After
+  public void deleteFolder() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+      for (Path path : files) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(folder);
+  }
+
+  /** A game played at random, as it was written */
+  static class Played {
+    final int number;
+    final long seed;
+    final Game game = new Game();
+    final byte moves[] = new byte[GameRecord.MAX_TURNS];
+    int turns = 0;
+
+    Played(int number, long seed) {
+      this.number = number;
+      this.seed = seed;
+      Random random = new Random(seed);
+      int list[] = new int[Board.SQUARES];
+      Board board = Board.start();
+      while (!board.gameOver()) {
+        int color = GameRecord.color(turns);
+        int count = Board.moveList(board.legalMoves(color), list);
+        int sq = count == 0 ? GameRecord.PASS : list[random.nextInt(count)];
+        if (sq != GameRecord.PASS) {
+          board.play(color, sq);
+        }
+        moves[turns++] = (byte) sq;
+      }
+      game.setBoard(board);
+    }
+
+    void write(GameRecordWriter writer) throws IOException {
+      writer.write(number, GameRecord.RANDOM, GameRecord.ENGINE, seed, game, moves, turns);
+    }
+
+    void check(GameRecord record) {
+      assertEquals(number, record.number());
+      assertEquals(GameRecord.RANDOM, record.blackPlayer());
+      assertEquals(GameRecord.ENGINE, record.whitePlayer());
+      assertEquals(seed, record.seed());
+      assertEquals(turns, record.turns());
+      assertEquals(game.count(Game.BLACK), record.count(Game.BLACK));
+      assertEquals(game.count(Game.WHITE), record.count(Game.WHITE));
+      byte read[] = new byte[record.turns()];
+      for (int turn = 0; turn < read.length; turn++) {
+        read[turn] = (byte) record.move(turn);
+      }
+      assertArrayEquals(Arrays.copyOf(moves, turns), read);
+      Board end = record.position(turns);
+      assertEquals(game.toBoard().discs(Game.BLACK), end.discs(Game.BLACK));
+      assertEquals(game.toBoard().discs(Game.WHITE), end.discs(Game.WHITE));
+    }
+  }
+
+  /** Writes games numbered from first in one run of the writer */
+  ArrayList<Played> write(int first, int games) throws IOException {
+    ArrayList<Played> played = new ArrayList<Played>();
+    try (GameRecordWriter writer = new GameRecordWriter(file)) {
+      for (int i = first; i < first + games; i++) {
+        Played game = new Played(i, 1000 + i);
+        game.write(writer);
+        played.add(game);
+      }
+    }
+    return played;
+  }
+
+  static void check(ArrayList<Played> played, GameArchive archive) {
+    assertEquals(played.size(), archive.size());
+    for (int i = 0; i < played.size(); i++) {
+      played.get(i).check(archive.get(i));
+    }
+  }
+
+  @Test
+  public void readsBackWhatWasWritten() throws IOException {
+    // More games than fit in the writer's buffers, over two runs
+    ArrayList<Played> played = write(0, 3000);
+    played.addAll(write(3000, 10));
+    check(played, new GameArchive(file));
+
+    int i = 0;
+    for (GameRecord record : new GameArchive(file)) {
+      played.get(i++).check(record);
+    }
+    assertEquals(played.size(), i);
+  }
+
+  @Test
+  public void readsWithoutIndex() throws IOException {
+    ArrayList<Played> played = write(0, 50);
+    Files.delete(GameRecordWriter.indexFile(file));
+    check(played, new GameArchive(file));
+  }
+
+  @Test
+  public void repairsAnArchiveCutShort() throws IOException {
+    ArrayList<Played> played = write(0, 20);
+
+    // A crash in the middle of the last record, with its offset already in the index
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+    played.remove(played.size() - 1);
+    check(played, new GameArchive(file));
+
+    // The next run drops the partial record and carries on after the last complete one
+    played.addAll(write(20, 5));
+    check(played, new GameArchive(file));
+    assertEquals(4 + 8L * played.size(), Files.size(GameRecordWriter.indexFile(file)));
+  }
+
+  @Test
+  public void repairsAnIndexCutShort() throws IOException {
+    ArrayList<Played> played = write(0, 20);
+    Path index = GameRecordWriter.indexFile(file);
+    try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 8 * 5 - 3);
+    }
+    check(played, new GameArchive(file));
+
+    played.addAll(write(20, 5));
+    check(played, new GameArchive(file));
+    assertEquals(4 + 8L * played.size(), Files.size(index));
+  }
+}
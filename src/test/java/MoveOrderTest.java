@@ -0,0 +1,80 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Checks the order MoveOrder gives moves, and that ordering changes the work but not the score. */
+public class MoveOrderTest {
+  static final int DEPTH = 6;
+
+  final MoveOrder order = new MoveOrder(White.pointTable);
+
+  /** @return the ordered moves as a list */
+  int[] ordered(long moves, int tableMove, int color, int ply) {
+    int count = order.order(moves, tableMove, color, ply);
+    int list[] = new int[count];
+    System.arraycopy(order.lists[ply], 0, list, 0, count);
+    return list;
+  }
+
+  @Test
+  public void triesEveryMoveOnce() {
+    long moves = 0x8142241818244281L;
+    int list[] = ordered(moves, -1, Game.BLACK, 0);
+    long seen = 0;
+    for (int sq : list) {
+      seen |= 1L << sq;
+    }
+    assertEquals(Long.bitCount(moves), list.length);
+    assertEquals(moves, seen);
+  }
+
+  @Test
+  public void triesTableMoveThenKillersThenHistory() {
+    int corner = Board.square(1, 1);
+    int xSquare = Board.square(2, 2);
+    int edge = Board.square(1, 3);
+    int inner = Board.square(3, 3);
+    long moves = (1L << corner) | (1L << xSquare) | (1L << edge) | (1L << inner);
+
+    // Before anything is learned the point table decides, corners first, X-squares last
+    int list[] = ordered(moves, -1, Game.BLACK, 5);
+    assertEquals(corner, list[0]);
+    assertEquals(xSquare, list[list.length - 1]);
+
+    // A cutoff at the same ply makes a move a killer, ahead of the corner
+    order.cutoff(xSquare, Game.BLACK, 5, 1);
+    assertEquals(xSquare, ordered(moves, -1, Game.BLACK, 5)[0]);
+    assertEquals(corner, ordered(moves, -1, Game.BLACK, 6)[0]);
+
+    // The table move comes before the killers
+    list = ordered(moves, inner, Game.BLACK, 5);
+    assertEquals(inner, list[0]);
+    assertEquals(xSquare, list[1]);
+
+    // Killers are forgotten by the next search, but the history of deep cutoffs is kept
+    order.cutoff(edge, Game.WHITE, 7, 10);
+    order.newSearch();
+    list = ordered(moves, -1, Game.WHITE, 5);
+    assertEquals(edge, list[0]);
+    assertEquals(corner, ordered(moves, -1, Game.BLACK, 5)[0]);
+  }
+
+  @Test
+  public void orderingKeepsTheScore() {
+    Search ordered = White.newSearch(White.defaultEvaluator(), null);
+    Search unordered = White.newSearch(White.defaultEvaluator(), null);
+    unordered.order = null;
+    long orderedNodes = 0;
+    long unorderedNodes = 0;
+    for (int p = 0; p < ParallelSearch.POSITIONS; p++) {
+      Board position = ParallelSearch.midgame(p);
+      ordered.bestMove(position, Game.BLACK, DEPTH);
+      unordered.bestMove(position, Game.BLACK, DEPTH);
+      assertEquals(unordered.score, ordered.score);
+      orderedNodes += ordered.nodes;
+      unorderedNodes += unordered.nodes;
+    }
+    assertTrue(orderedNodes < unorderedNodes);
+  }
+}
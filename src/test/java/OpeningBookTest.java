@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Builds a small opening book and looks up the positions it covers, in every orientation. */
+public class OpeningBookTest {
+  static final int PLIES = 4;
+  static final int DEPTH = 3;
+
+  // Without a table, so each move scores the same however often it is searched
+  final Search search = White.newSearch(White.defaultEvaluator(), null);
+
+  Path file;
+  OpeningBook book;
+
+  @Before
+  public void build() throws IOException {
+    file = Files.createTempFile("book", ".obk");
+    assertTrue(OpeningBook.build(file, search, PLIES, DEPTH) > 0);
+    book = new OpeningBook(file);
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    Files.delete(file);
+  }
+
+  /** @return the score the book gives a move */
+  int score(Board board, int color, int sq) {
+    int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    Board after = new Board(board);
+    after.play(color, sq);
+    search.start(after, Long.MAX_VALUE);
+    return -search.negamax(other, DEPTH - 1, -Search.INFINITE, Search.INFINITE);
+  }
+
+  /** Checks a position and the positions after it, down to the plies the book covers */
+  void check(Board board, int color, int plies) {
+    if (plies == 0) {
+      return;
+    }
+    int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    long moves = board.legalMoves(color);
+
+    int best = -Search.INFINITE;
+    for (long left = moves; left != 0; left &= left - 1) {
+      best = Math.max(best, score(board, color, Long.numberOfTrailingZeros(left)));
+    }
+
+    for (int t = 0; t < Symmetry.TRANSFORMS; t++) {
+      Board turned =
+          new Board(
+              Symmetry.transform(t, board.discs(Game.BLACK)),
+              Symmetry.transform(t, board.discs(Game.WHITE)));
+      int move = book.lookup(turned, color);
+      assertTrue(move >= 0);
+      assertTrue((turned.legalMoves(color) & (1L << move)) != 0);
+      assertEquals(best, score(turned, color, move));
+    }
+
+    for (long left = moves; left != 0; left &= left - 1) {
+      Board after = new Board(board);
+      after.play(color, Long.numberOfTrailingZeros(left));
+      check(after, other, plies - 1);
+    }
+  }
+
+  @Test
+  public void findsTheBestMoveOfEveryBookPosition() {
+    check(Board.start(), Game.BLACK, PLIES);
+  }
+
+  @Test
+  public void missesPositionsPastTheBook() {
+    Random random = new Random(7);
+    int list[] = new int[Board.SQUARES];
+    for (int game = 0; game < 20; game++) {
+      Board board = Board.start();
+      int color = Game.BLACK;
+      for (int ply = 0; ply < PLIES + 2; ply++) {
+        board.play(color, list[random.nextInt(Board.moveList(board.legalMoves(color), list))]);
+        color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      }
+      assertEquals(-1, book.lookup(board, color));
+    }
+  }
+}
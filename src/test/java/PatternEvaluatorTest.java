@@ -0,0 +1,73 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Saves the weights of a PatternEvaluator and loads them back. */
+public class PatternEvaluatorTest {
+  static final int DISC_VALUE = (int) White.ENDWEIGHT;
+
+  Path file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = Files.createTempFile("weights", ".bin");
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    Files.delete(file);
+  }
+
+  @Test
+  public void loadsWhatWasSaved() throws IOException {
+    Random random = new Random(5);
+    PatternEvaluator saved = new PatternEvaluator(PatternEvaluator.PHASES, DISC_VALUE);
+    for (short phase[] : saved.weights) {
+      for (int i = 0; i < phase.length; i++) {
+        phase[i] = (short) random.nextInt(1 << 16);
+      }
+    }
+    saved.save(file);
+
+    PatternEvaluator loaded = new PatternEvaluator(file, DISC_VALUE);
+    assertEquals(saved.weights.length, loaded.weights.length);
+    for (int phase = 0; phase < saved.weights.length; phase++) {
+      for (int i = 0; i < saved.weights[phase].length; i++) {
+        assertEquals(saved.weights[phase][i], loaded.weights[phase][i]);
+      }
+    }
+
+    int list[] = new int[Board.SQUARES];
+    Board board = Board.start();
+    int color = Game.BLACK;
+    while (!board.gameOver()) {
+      int other = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      long player = board.discs(color);
+      long opponent = board.discs(other);
+      assertEquals(saved.evaluate(player, opponent), loaded.evaluate(player, opponent));
+      int count = Board.moveList(board.legalMoves(color), list);
+      if (count > 0) {
+        board.play(color, list[random.nextInt(count)]);
+      }
+      color = other;
+    }
+  }
+
+  @Test
+  public void rejectsOtherFiles() throws IOException {
+    Files.write(file, new byte[] {1, 2, 3, 4, 0, 0, 0, 1});
+    try {
+      new PatternEvaluator(file, DISC_VALUE);
+      fail("Loaded a file that is not a weights file");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+}
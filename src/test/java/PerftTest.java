@@ -0,0 +1,29 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/** Checks the move generator by the number of leaves of the game tree from the start position. */
+public class PerftTest {
+  // Leaves at depths 1 to 8, the published counts for Othello with passes counted as moves
+  static final long COUNTS[] = {4, 12, 56, 244, 1396, 8200, 55092, 390216};
+
+  @Test
+  public void countsWithoutTable() {
+    Perft perft = new Perft(1, 0);
+    for (int depth = 1; depth <= COUNTS.length; depth++) {
+      assertEquals(
+          "depth " + depth, COUNTS[depth - 1], perft.count(Board.start(), Game.BLACK, depth));
+    }
+  }
+
+  @Test
+  public void countsWithTableAndThreads() {
+    // Counts are stored under canonical positions, so this also checks that symmetric positions
+    // share their counts correctly
+    Perft perft = new Perft(2, 4);
+    for (int depth = 1; depth <= COUNTS.length; depth++) {
+      assertEquals(
+          "depth " + depth, COUNTS[depth - 1], perft.count(Board.start(), Game.BLACK, depth));
+    }
+  }
+}
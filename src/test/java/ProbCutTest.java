@@ -0,0 +1,100 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Saves and loads ProbCut calibrations, and checks when the search is left unchanged by them. */
+public class ProbCutTest {
+  static final int DEPTH = 6;
+
+  Path file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = Files.createTempFile("probcut", ".bin");
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    Files.delete(file);
+  }
+
+  /** @return a calibration with every line filled in at random */
+  static ProbCut random(long seed) {
+    Random random = new Random(seed);
+    ProbCut probCut = new ProbCut();
+    for (int stage = 0; stage < ProbCut.STAGES; stage++) {
+      for (int depth = 0; depth <= ProbCut.MAX_DEPTH; depth++) {
+        for (int check = 0; check < ProbCut.CHECKS; check++) {
+          probCut.slope[stage][depth][check] = 0.5 + random.nextDouble();
+          probCut.intercept[stage][depth][check] = random.nextGaussian() * 100;
+          probCut.sigma[stage][depth][check] = random.nextDouble() * 1000;
+        }
+      }
+    }
+    return probCut;
+  }
+
+  @Test
+  public void loadsWhatWasSaved() throws IOException {
+    ProbCut saved = random(13);
+    saved.save(file);
+    ProbCut loaded = new ProbCut(file);
+    for (int stage = 0; stage < ProbCut.STAGES; stage++) {
+      for (int depth = 0; depth <= ProbCut.MAX_DEPTH; depth++) {
+        for (int check = 0; check < ProbCut.CHECKS; check++) {
+          assertEquals(
+              Double.doubleToLongBits(saved.slope[stage][depth][check]),
+              Double.doubleToLongBits(loaded.slope[stage][depth][check]));
+          assertEquals(
+              Double.doubleToLongBits(saved.intercept[stage][depth][check]),
+              Double.doubleToLongBits(loaded.intercept[stage][depth][check]));
+          assertEquals(
+              Double.doubleToLongBits(saved.sigma[stage][depth][check]),
+              Double.doubleToLongBits(loaded.sigma[stage][depth][check]));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void rejectsOtherFiles() throws IOException {
+    Files.write(file, new byte[] {0, 0, 0, 0});
+    try {
+      new ProbCut(file);
+      fail("Loaded a file that is not a calibration");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  /** @return the score of a fixed depth search from each of the benchmark positions */
+  static int[] scores(ProbCut probCut, int selectivity) {
+    Search search = White.newSearch(White.defaultEvaluator(), null);
+    search.probCut = probCut;
+    search.selectivity = selectivity;
+    int scores[] = new int[ParallelSearch.POSITIONS];
+    for (int p = 0; p < scores.length; p++) {
+      search.bestMove(ParallelSearch.midgame(p), Game.BLACK, DEPTH);
+      scores[p] = search.score;
+    }
+    return scores;
+  }
+
+  @Test
+  public void cutsNothingUntilCalibratedAndSelective() {
+    int full[] = scores(null, 0);
+    int uncalibrated[] = scores(new ProbCut(), ProbCut.CONFIDENCE.length - 1);
+    int unselective[] = scores(random(17), 0);
+    for (int p = 0; p < full.length; p++) {
+      assertEquals(full[p], uncalibrated[p]);
+      assertEquals(full[p], unselective[p]);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Checks that principal variation search and aspiration windows find the same scores as a plain
+ * alpha-beta search, and that the principal variations are legal lines.
+ */
+public class SearchTest {
+  static final int POSITIONS = 24;
+  static final int DEPTH = 5;
+
+  /** A position reached by random play and the player to move there */
+  static class Position {
+    final Board board;
+    final int color;
+
+    Position(Board board, int color) {
+      this.board = board;
+      this.color = color;
+    }
+  }
+
+  /** @return positions from the opening to the end of the midgame with moves for the player */
+  static ArrayList<Position> positions() {
+    ArrayList<Position> positions = new ArrayList<Position>();
+    Random random = new Random(11);
+    int list[] = new int[Board.SQUARES];
+    while (positions.size() < POSITIONS) {
+      Board board = Board.start();
+      int color = Game.BLACK;
+      int plies = 4 + random.nextInt(40);
+      for (int ply = 0; ply < plies && !board.gameOver(); ply++) {
+        int count = Board.moveList(board.legalMoves(color), list);
+        if (count > 0) {
+          board.play(color, list[random.nextInt(count)]);
+        }
+        color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      }
+      if (board.legalMoves(color) != 0) {
+        positions.add(new Position(board, color));
+      }
+    }
+    return positions;
+  }
+
+  /** @return a search without a table, whose scores do not depend on earlier searches */
+  static Search search(boolean pvs) {
+    Search search = White.newSearch(White.defaultEvaluator(), null);
+    search.pvs = pvs;
+    return search;
+  }
+
+  /** Plays out a principal variation, failing on the first move that is not legal */
+  static void checkLine(Position position, SearchResult result) {
+    assertTrue(result.pv.length > 0);
+    assertEquals(result.move, result.pv[0]);
+    Board board = new Board(position.board);
+    int color = position.color;
+    for (int sq : result.pv) {
+      long moves = board.legalMoves(color);
+      if (sq == Search.PASS) {
+        assertEquals(0, moves);
+      } else {
+        assertTrue((moves & (1L << sq)) != 0);
+        board.play(color, sq);
+      }
+      color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    }
+  }
+
+  @Test
+  public void principalVariationSearchMatchesAlphaBeta() {
+    Search alphaBeta = search(false);
+    Search pvs = search(true);
+    for (Position position : positions()) {
+      alphaBeta.bestMove(position.board, position.color, DEPTH);
+      pvs.bestMove(position.board, position.color, DEPTH);
+      assertEquals(alphaBeta.score, pvs.score);
+      checkLine(position, alphaBeta.result());
+      checkLine(position, pvs.result());
+    }
+  }
+
+  @Test
+  public void aspirationWindowsMatchAlphaBeta() {
+    Search alphaBeta = search(false);
+    Search iterative = search(true);
+    for (Position position : positions()) {
+      alphaBeta.bestMove(position.board, position.color, DEPTH);
+      iterative.iterate(position.board, position.color, DEPTH, Long.MAX_VALUE, Long.MAX_VALUE);
+      SearchResult result = iterative.result();
+      assertEquals(DEPTH, result.depth);
+      assertEquals(alphaBeta.score, result.score);
+      checkLine(position, result);
+    }
+  }
+
+  @Test
+  public void cancelBeforeStartStopsTheSearch() {
+    Search search = search(true);
+    search.cancelled = new AtomicBoolean(true);
+    EndgameSolver solver = new EndgameSolver(null);
+    solver.cancelled = search.cancelled;
+    for (Position position : positions()) {
+      search.iterate(position.board, position.color, 60, Long.MAX_VALUE, Long.MAX_VALUE);
+      assertTrue(search.result().depth < 2);
+      assertEquals(-1, solver.bestMove(position.board, position.color, true, Long.MAX_VALUE));
+    }
+
+    search.cancelled.set(false);
+    search.iterate(ParallelSearch.midgame(0), Game.BLACK, DEPTH, Long.MAX_VALUE, Long.MAX_VALUE);
+    assertEquals(DEPTH, search.result().depth);
+  }
+}
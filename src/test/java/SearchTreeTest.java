@@ -0,0 +1,74 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Plays games in which White's moves come from a SearchTree kept between moves, and checks every
+ * move against the depth first minimax of White.
+ */
+public class SearchTreeTest {
+  static final int GAMES = 10;
+
+  final White white = new White(1);
+
+  /**
+   * Plays random games for Black against the tree
+   *
+   * @param tree the tree, kept across the moves of a game
+   * @param depth the depth of the search
+   * @return the nodes kept from one search to the next over all the games
+   */
+  long play(SearchTree tree, int depth) {
+    Random random = new Random(depth);
+    int list[] = new int[Board.SQUARES];
+    long reused = 0;
+    for (int g = 0; g < GAMES; g++) {
+      tree.clear();
+      Game game = new Game();
+      game.setBoard(Board.start());
+      int color = Game.BLACK;
+      while (!game.toBoard().gameOver()) {
+        Board board = game.toBoard();
+        int count = Board.moveList(board.legalMoves(color), list);
+        if (count > 0) {
+          int sq;
+          if (color == Game.WHITE) {
+            sq = tree.bestMove(game, color, depth);
+            reused += tree.reused;
+            Move expected = white.depthFirst(game, color, depth);
+            assertEquals(Board.square(expected.y, expected.x), sq);
+          } else {
+            sq = list[random.nextInt(count)];
+          }
+          game.play(Board.row(sq), Board.column(sq), color);
+        }
+        color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+      }
+    }
+    return reused;
+  }
+
+  @Test
+  public void choosesTheMovesOfMinimax() {
+    for (int depth = 1; depth <= 4; depth++) {
+      play(new SearchTree(64), depth);
+    }
+  }
+
+  @Test
+  public void keepsTheSubtreeOfTheMovesPlayed() {
+    // At depth 2 the position reached was a leaf of the last search, deeper it was searched
+    assertTrue(play(new SearchTree(64), 3) > 30 * GAMES);
+  }
+
+  @Test
+  public void givesUpWhenOutOfMemory() {
+    SearchTree tree = new SearchTree(1);
+    Game game = new Game();
+    game.setBoard(ParallelSearch.midgame(0));
+    assertEquals(-1, tree.bestMove(game, Game.BLACK, 8));
+    assertEquals(0, tree.size);
+  }
+}
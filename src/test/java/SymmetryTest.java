@@ -0,0 +1,97 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/** Checks the symmetries of the board and the canonical positions built from them. */
+public class SymmetryTest {
+  static final int POSITIONS = 10000;
+
+  @Test
+  public void transformMovesEverySquareAsSquareDoes() {
+    for (int t = 0; t < Symmetry.TRANSFORMS; t++) {
+      for (int sq = 0; sq < Board.SQUARES; sq++) {
+        assertEquals(1L << Symmetry.square(t, sq), Symmetry.transform(t, 1L << sq));
+      }
+    }
+  }
+
+  @Test
+  public void inverseUndoesTransform() {
+    Random random = new Random(1);
+    for (int i = 0; i < POSITIONS; i++) {
+      long discs = random.nextLong();
+      for (int t = 0; t < Symmetry.TRANSFORMS; t++) {
+        int inverse = Symmetry.inverse(t);
+        assertEquals(discs, Symmetry.transform(inverse, Symmetry.transform(t, discs)));
+        assertEquals(discs, Symmetry.transform(t, Symmetry.transform(inverse, discs)));
+      }
+    }
+  }
+
+  @Test
+  public void transformsAreDistinct() {
+    // A square off the diagonals and the middle lines lands somewhere different under each one
+    long seen = 0;
+    for (int t = 0; t < Symmetry.TRANSFORMS; t++) {
+      seen |= Symmetry.transform(t, 1L << Board.square(1, 2));
+    }
+    assertEquals(Symmetry.TRANSFORMS, Long.bitCount(seen));
+  }
+
+  @Test
+  public void canonicalIsTheSmallestImage() {
+    Random random = new Random(2);
+    for (int i = 0; i < POSITIONS; i++) {
+      long player = random.nextLong();
+      long opponent = random.nextLong() & ~player;
+      int t = Symmetry.canonical(player, opponent);
+      long p = Symmetry.transform(t, player);
+      long o = Symmetry.transform(t, opponent);
+      for (int other = 0; other < Symmetry.TRANSFORMS; other++) {
+        long op = Symmetry.transform(other, player);
+        long oo = Symmetry.transform(other, opponent);
+        assertTrue(p < op || (p == op && o <= oo));
+      }
+    }
+  }
+
+  @Test
+  public void symmetricPositionsShareTheirCanonicalPosition() {
+    Random random = new Random(3);
+    int list[] = new int[Board.SQUARES];
+    Board board = Board.start();
+    int color = Game.BLACK;
+    for (int i = 0; i < POSITIONS; i++) {
+      if (board.gameOver()) {
+        board = Board.start();
+      }
+      long player = board.discs(color);
+      long opponent = board.discs(color == Game.BLACK ? Game.WHITE : Game.BLACK);
+      int t = Symmetry.canonical(player, opponent);
+      long canonicalPlayer = Symmetry.transform(t, player);
+      long canonicalOpponent = Symmetry.transform(t, opponent);
+
+      for (int s = 0; s < Symmetry.TRANSFORMS; s++) {
+        long p = Symmetry.transform(s, player);
+        long o = Symmetry.transform(s, opponent);
+        int u = Symmetry.canonical(p, o);
+        assertEquals(canonicalPlayer, Symmetry.transform(u, p));
+        assertEquals(canonicalOpponent, Symmetry.transform(u, o));
+      }
+
+      // A move of the canonical position maps back to a legal move of the position
+      long canonicalMoves = Board.moves(canonicalPlayer, canonicalOpponent);
+      assertEquals(
+          Board.moves(player, opponent),
+          Symmetry.transform(Symmetry.inverse(t), canonicalMoves));
+
+      int count = Board.moveList(board.legalMoves(color), list);
+      if (count > 0) {
+        board.play(color, list[random.nextInt(count)]);
+      }
+      color = color == Game.BLACK ? Game.WHITE : Game.BLACK;
+    }
+  }
+}
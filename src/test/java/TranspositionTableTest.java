@@ -0,0 +1,111 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/** Stores and probes entries of a TranspositionTable, including when a full bucket is replaced. */
+public class TranspositionTableTest {
+  final TranspositionTable table = new TranspositionTable(1);
+
+  /** @return the nth key after key that falls in the same bucket */
+  long sameBucket(long key, int n) {
+    return key + n * (table.bucketMask + 1);
+  }
+
+  @Test
+  public void probeReturnsWhatWasStored() {
+    long key = 0x123456789abcdefL;
+    assertEquals(0, table.probe(key));
+
+    table.store(key, 7, TranspositionTable.LOWER, -1234, 63);
+    long data = table.probe(key);
+    assertEquals(7, TranspositionTable.depth(data));
+    assertEquals(TranspositionTable.LOWER, TranspositionTable.flag(data));
+    assertEquals(-1234, TranspositionTable.score(data));
+    assertEquals(63, TranspositionTable.move(data));
+
+    // A pass or a leaf has no move
+    table.store(key ^ 1, 0, TranspositionTable.EXACT, 0, -1);
+    data = table.probe(key ^ 1);
+    assertTrue(data != 0);
+    assertEquals(-1, TranspositionTable.move(data));
+    assertEquals(0, table.probe(key ^ 2));
+  }
+
+  @Test
+  public void storeOverwritesTheSamePosition() {
+    long key = 42;
+    table.store(key, 3, TranspositionTable.UPPER, 10, 5);
+    table.store(key, 9, TranspositionTable.EXACT, 20, 6);
+    long data = table.probe(key);
+    assertEquals(9, TranspositionTable.depth(data));
+    assertEquals(20, TranspositionTable.score(data));
+    assertEquals(6, TranspositionTable.move(data));
+
+    // The other entries of the bucket are still free
+    for (int i = 1; i < TranspositionTable.BUCKET_ENTRIES; i++) {
+      table.store(sameBucket(key, i), 1, TranspositionTable.EXACT, i, i);
+    }
+    assertEquals(0, table.collisions());
+    assertEquals(9, TranspositionTable.depth(table.probe(key)));
+  }
+
+  @Test
+  public void fullBucketLosesItsShallowestEntry() {
+    long key = 1000;
+    int depths[] = {6, 2, 8, 4};
+    for (int i = 0; i < depths.length; i++) {
+      table.store(sameBucket(key, i), depths[i], TranspositionTable.EXACT, i, i);
+    }
+
+    table.store(sameBucket(key, 4), 5, TranspositionTable.EXACT, 4, 4);
+    assertEquals(1, table.collisions());
+    assertEquals(0, table.probe(sameBucket(key, 1)));
+    for (int i : new int[] {0, 2, 3, 4}) {
+      assertEquals(i, TranspositionTable.score(table.probe(sameBucket(key, i))));
+    }
+  }
+
+  @Test
+  public void olderEntriesAreReplacedFirst() {
+    long key = 77;
+    table.store(key, 9, TranspositionTable.EXACT, 0, 0);
+    table.newSearch();
+    for (int i = 1; i < TranspositionTable.BUCKET_ENTRIES; i++) {
+      table.store(sameBucket(key, i), 6, TranspositionTable.EXACT, i, i);
+    }
+
+    // The deepest entry is from the last search, which counts as 4 plies less
+    table.store(sameBucket(key, 4), 1, TranspositionTable.EXACT, 4, 4);
+    assertEquals(0, table.probe(key));
+    for (int i = 1; i <= TranspositionTable.BUCKET_ENTRIES; i++) {
+      assertEquals(i, TranspositionTable.score(table.probe(sameBucket(key, i))));
+    }
+  }
+
+  @Test
+  public void clearEmptiesTheTable() {
+    for (long key = 1; key <= 100; key++) {
+      table.store(key * 0x9e3779b97f4a7c15L, 5, TranspositionTable.EXACT, (int) key, 0);
+    }
+    table.clear();
+    for (long key = 1; key <= 100; key++) {
+      assertEquals(0, table.probe(key * 0x9e3779b97f4a7c15L));
+    }
+    assertEquals(0, table.stores());
+  }
+
+  @Test
+  public void rejectsSizesItCannotHold() {
+    for (int sizeMB : new int[] {0, TranspositionTable.MAX_MB + 1, 4096}) {
+      try {
+        new TranspositionTable(sizeMB);
+        fail("Made a table of " + sizeMB + " MB");
+      } catch (IllegalArgumentException e) {
+        // Expected
+      }
+    }
+    assertEquals(2 << 20, new TranspositionTable(3).table.capacity());
+  }
+}